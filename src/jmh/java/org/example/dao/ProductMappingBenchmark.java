@@ -0,0 +1,62 @@
+package org.example.dao;
+
+import org.example.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row mapping cost of ProductDAO, against an in-memory ResultSet so no driver is involved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProductMappingBenchmark {
+    private ProductDAO productDAO;
+    private ResultSet row;
+
+    @Setup
+    public void setup() {
+        productDAO = new ProductDAO();
+
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("id", 42);
+        columns.put("name", "Organic Apples (1kg)");
+        columns.put("price", new BigDecimal("149.50"));
+        columns.put("stock", 87);
+        columns.put("expiry_date", Date.valueOf(LocalDate.of(2030, 1, 15)));
+        columns.put("category", "Fruit");
+
+        row = (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    if (args != null && args.length == 1 && args[0] instanceof String) {
+                        return columns.get(args[0]);
+                    }
+                    if ("wasNull".equals(method.getName())) {
+                        return false;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    @Benchmark
+    public Product mapResultSetToProduct() throws SQLException {
+        return productDAO.mapResultSetToProduct(row);
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.dao;
+
+import org.example.model.Money;
+import org.example.model.Product;
+import org.example.model.Sale;
+import org.example.model.SaleResult;
+import org.example.util.DatabaseUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end SaleDAO.createSale through the connection pool, against an embedded H2
+ * database in MySQL mode standing in for the real server.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SaleDAOBenchmark {
+    private static final int PRODUCT_COUNT = 1000;
+
+    @Param({"1", "5", "20"})
+    private int lines;
+
+    private SaleDAO saleDAO;
+    private Product[] products;
+
+    @Setup
+    public void setup() throws SQLException, ClassNotFoundException {
+        // The fat benchmark jar merges driver service files, so register H2 explicitly
+        Class.forName("org.h2.Driver");
+        DatabaseUtil.configure("jdbc:h2:mem:pos_bench;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP ALL OBJECTS");
+            stmt.execute("CREATE TABLE products (id INT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(255) NOT NULL, " +
+                    "price DECIMAL(10, 2) NOT NULL, stock INT NOT NULL, expiry_date DATE, category VARCHAR(100))");
+            stmt.execute("CREATE TABLE sales (id INT AUTO_INCREMENT PRIMARY KEY, user_id INT NOT NULL, " +
+                    "total_amount DECIMAL(12, 2) NOT NULL, sale_date TIMESTAMP NOT NULL)");
+            stmt.execute("CREATE TABLE sale_items (id INT AUTO_INCREMENT PRIMARY KEY, sale_id INT NOT NULL, " +
+                    "product_id INT NOT NULL, quantity INT NOT NULL, unit_price DECIMAL(10, 2) NOT NULL)");
+            stmt.execute("CREATE TABLE daily_sales_summary (sale_day DATE NOT NULL PRIMARY KEY, " +
+                    "total_sales DECIMAL(14, 2) NOT NULL DEFAULT 0, item_count INT NOT NULL DEFAULT 0, " +
+                    "sale_count INT NOT NULL DEFAULT 0)");
+            for (int i = 1; i <= PRODUCT_COUNT; i++) {
+                stmt.addBatch("INSERT INTO products (name, price, stock, category) VALUES ('Product " + i +
+                        "', 9.99, 1000000000, 'Grocery')");
+            }
+            stmt.executeBatch();
+        }
+
+        saleDAO = new SaleDAO();
+        products = new Product[PRODUCT_COUNT];
+        for (int i = 0; i < PRODUCT_COUNT; i++) {
+            products[i] = new Product(i + 1, "Product " + (i + 1), Money.ofCents(999), 1000000000, null, "Grocery");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        DatabaseUtil.closeConnection();
+    }
+
+    @Benchmark
+    public SaleResult createSale() {
+        Sale sale = new Sale();
+        sale.setUserId(1);
+        sale.setSaleDate(LocalDateTime.now());
+        int offset = (int) (System.nanoTime() % (PRODUCT_COUNT - lines));
+        for (int i = 0; i < lines; i++) {
+            sale.addItem(products[offset + i], 1);
+        }
+
+        SaleResult result = saleDAO.createSale(sale);
+        if (!result.isSuccess()) {
+            throw new IllegalStateException(result.getMessage());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart arithmetic: building a cart line by line and reading its totals.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SaleBenchmark {
+
+    @Param({"1", "10", "100", "500"})
+    private int lines;
+
+    private Product[] products;
+    private Sale cart;
+
+    @Setup
+    public void setup() {
+        products = new Product[lines];
+        for (int i = 0; i < lines; i++) {
+            products[i] = new Product(i + 1, "Product " + i, Money.ofCents(1999 + i * 100L),
+                    1000, null, "Grocery");
+        }
+
+        cart = new Sale();
+        for (Product product : products) {
+            cart.addItem(product, 3);
+        }
+        cart.setDiscountAmount(Money.ofCents(500));
+    }
+
+    @Benchmark
+    public Money addItems() {
+        Sale sale = new Sale();
+        for (Product product : products) {
+            sale.addItem(product, 3);
+        }
+        return sale.getTotalAmount();
+    }
+
+    @Benchmark
+    public Money getTotalAmount() {
+        return cart.getTotalAmount();
+    }
+
+    @Benchmark
+    public Money calculateRawTotal() {
+        return cart.calculateRawTotal();
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.service;
+
+import org.example.model.Money;
+import org.example.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Search-as-you-type on the Sales tab: the old linear filter against the trigram index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(java.util.concurrent.TimeUnit.MICROSECONDS)
+public class ProductSearchBenchmark {
+    private static final String[] WORDS = {
+            "apple", "bread", "milk", "cheese", "organic", "fresh", "juice", "rice",
+            "coffee", "tea", "soap", "paper", "tomato", "butter", "yogurt", "honey"
+    };
+
+    @Param({"10000", "100000", "1000000"})
+    private int catalogSize;
+
+    @Param({"ap", "apple", "organic rice"})
+    private String query;
+
+    private List<Product> products;
+    private ProductSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        products = new ArrayList<>(catalogSize);
+        for (int i = 0; i < catalogSize; i++) {
+            String name = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] + " " + i;
+            products.add(new Product(i + 1, name, Money.ofCents(random.nextInt(10000)),
+                    random.nextInt(200), null, WORDS[random.nextInt(WORDS.length)]));
+        }
+
+        index = new ProductSearchIndex();
+        index.catalogReloaded(products);
+    }
+
+    // What SalesPanel.filterProducts used to do on every keystroke
+    @Benchmark
+    public List<Product> linearFilter() {
+        String searchText = query.toLowerCase();
+        return products.stream()
+                .filter(product ->
+                        product.getName().toLowerCase().contains(searchText) ||
+                                (product.getDescription() != null &&
+                                        product.getDescription().toLowerCase().contains(searchText)))
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Product> indexSearch() {
+        return index.search(query, 50);
+    }
+}
@@ -1,7 +1,14 @@
 package org.example;
 
+import org.example.dao.SchemaMigrator;
+import org.example.service.AuthService;
+import org.example.service.ProductService;
+import org.example.service.SaleService;
+import org.example.ui.FirstRunSetup;
 import org.example.ui.LoginFrame;
+import org.example.util.Config;
 import org.example.util.DatabaseUtil;
+import org.example.util.MetricsServer;
 
 import javax.swing.*;
 
@@ -17,6 +24,12 @@ public class Main {
         // Initialize database connection
         if (DatabaseUtil.testConnection()) {
             System.out.println("Database connection successful");
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                MetricsServer.stop();
+                ProductService.stopAlertEngine();
+                SaleService.stopJournal();
+                DatabaseUtil.closeConnection();
+            }, "db-pool-shutdown"));
         } else {
             JOptionPane.showMessageDialog(null,
                     "Failed to connect to the database. Please check your configuration.",
@@ -25,8 +38,35 @@ public class Main {
             System.exit(1);
         }
 
+        // Create or upgrade the tables and indexes before anything queries them
+        if (!new SchemaMigrator().migrate()) {
+            JOptionPane.showMessageDialog(null,
+                    "Failed to prepare the database schema. See the console for details.",
+                    "Database Error",
+                    JOptionPane.ERROR_MESSAGE);
+            System.exit(1);
+        }
+
+        // Replay any sales left in the local journal by the previous run
+        SaleService.startJournal();
+
+        // Load the catalog and keep the inventory alerts current from here on
+        ProductService.startAlertEngine();
+
+        // Expose latency and throughput metrics for Prometheus
+        if (Config.ENABLE_METRICS_ENDPOINT) {
+            MetricsServer.start(Config.METRICS_BIND_ADDRESS, Config.METRICS_HTTP_PORT);
+        }
+
+        // A fresh install has no accounts, so the first administrator is created before login
+        AuthService authService = new AuthService();
+        boolean firstRun = authService.needsFirstAdministrator();
+
         // Start application with login screen
         SwingUtilities.invokeLater(() -> {
+            if (firstRun && !FirstRunSetup.createAdministrator(authService)) {
+                System.exit(0);
+            }
             LoginFrame loginFrame = new LoginFrame();
             loginFrame.setVisible(true);
         });
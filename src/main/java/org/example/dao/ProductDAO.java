@@ -1,21 +1,72 @@
 package org.example.dao;
 
+import org.example.model.Money;
 import org.example.model.Product;
 import org.example.util.DatabaseUtil;
+import org.example.util.Today;
 
-import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public class ProductDAO {
 
+    /**
+     * Orders for paged reads. Every order ends with the id, so it is total and can be
+     * resumed from the last row of the previous page. Products without an expiry date
+     * sort after those with one.
+     */
+    public enum SortKey {
+        ID("id"),
+        NAME("name"),
+        PRICE("price"),
+        STOCK("stock"),
+        EXPIRY("expiry_date");
+
+        private final String column;
+
+        SortKey(String column) {
+            this.column = column;
+        }
+
+        private String orderBy() {
+            if (this == ID) return "id";
+            if (this == EXPIRY) return "expiry_date IS NULL, expiry_date, id";
+            return column + ", id";
+        }
+    }
+
+    /**
+     * Columns a paged read can be limited to. The id and the sort column are always fetched.
+     */
+    public enum Column {
+        ID("id"),
+        NAME("name"),
+        PRICE("price"),
+        STOCK("stock"),
+        EXPIRY_DATE("expiry_date"),
+        CATEGORY("category");
+
+        private final String column;
+
+        Column(String column) {
+            this.column = column;
+        }
+    }
+
+    public static final Set<Column> ALL_COLUMNS = EnumSet.allOf(Column.class);
+
+    /**
+     * @return every product, or null if they could not be read
+     */
     public List<Product> getAllProducts() {
         List<Product> products = new ArrayList<>();
         String sql = "SELECT * FROM products";
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("ProductDAO.getAllProducts");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -25,15 +76,197 @@ public class ProductDAO {
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving products: " + e.getMessage());
+            return null;
+        }
+
+        return products;
+    }
+
+    public int countProducts() {
+        String sql = "SELECT COUNT(*) FROM products";
+
+        try (Connection conn = DatabaseUtil.getConnection("ProductDAO.countProducts");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting products: " + e.getMessage());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Returns one window of products by position. The database still reads and skips
+     * {@code offset} rows, so prefer {@link #getProductsAfter} when the previous page is known.
+     *
+     * @return the products, empty past the last page; null, not an empty list, if the
+     *         query failed, after logging the error
+     */
+    public List<Product> getProductsPage(SortKey sort, int offset, int limit) {
+        List<Product> products = new ArrayList<>();
+        String sql = "SELECT * FROM products ORDER BY " + sort.orderBy() + " LIMIT ? OFFSET ?";
+
+        try (Connection conn = DatabaseUtil.getConnection("ProductDAO.getProductsPage");
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, limit);
+            stmt.setInt(2, offset);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapResultSetToProduct(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving product page: " + e.getMessage());
+            return null;
         }
 
         return products;
     }
 
+    /**
+     * Returns the products with id greater than {@code afterId}, in id order. Walking the
+     * catalog with the last id of each batch reads every product once, at index speed.
+     *
+     * @return the products, empty past the last page; null, not an empty list, if the
+     *         query failed, after logging the error
+     */
+    public List<Product> getProductsAfterId(int afterId, int limit) {
+        Product after = null;
+        if (afterId > 0) {
+            after = new Product();
+            after.setId(afterId);
+        }
+        return getProductsAfter(SortKey.ID, after, limit, ALL_COLUMNS);
+    }
+
+    /**
+     * Keyset pagination: returns up to {@code limit} products that come after {@code after}
+     * in the given order, seeking on (sort column, id) instead of skipping rows.
+     *
+     * @param after   the last product of the previous page, or null for the first page; only
+     *                its id and sort column are used
+     * @param columns the columns to fetch; products are only populated for these (plus the
+     *                id and sort column)
+     * @return the products, empty past the last page; null, not an empty list, if the
+     *         query failed, after logging the error
+     */
+    public List<Product> getProductsAfter(SortKey sort, Product after, int limit, Set<Column> columns) {
+        List<Product> products = new ArrayList<>();
+        Set<Column> fetched = EnumSet.of(Column.ID);
+        fetched.addAll(columns);
+        fetched.add(sortColumn(sort));
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        String separator = "";
+        for (Column column : fetched) {
+            sql.append(separator).append(column.column);
+            separator = ", ";
+        }
+        sql.append(" FROM products");
+
+        Object afterValue = after != null ? sortValue(sort, after) : null;
+        if (after != null) {
+            sql.append(" WHERE ").append(seekCondition(sort, afterValue == null));
+        }
+        sql.append(" ORDER BY ").append(sort.orderBy()).append(" LIMIT ?");
+
+        try (Connection conn = DatabaseUtil.getConnection("ProductDAO.getProductsAfter");
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            int index = 1;
+            if (after != null) {
+                if (sort != SortKey.ID && afterValue != null) {
+                    stmt.setObject(index++, afterValue);
+                    stmt.setObject(index++, afterValue);
+                }
+                stmt.setInt(index++, after.getId());
+            }
+            stmt.setInt(index, limit);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapColumns(rs, fetched));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error retrieving products: " + e.getMessage());
+            return null;
+        }
+
+        return products;
+    }
+
+    // Rows strictly after the (sort value, id) position, matching SortKey.orderBy()
+    private static String seekCondition(SortKey sort, boolean afterValueIsNull) {
+        String column = sort.column;
+        if (sort == SortKey.ID) {
+            return "id > ?";
+        }
+        if (afterValueIsNull) {
+            // Only reachable for expiry: nulls sort last, so only later nulls remain
+            return column + " IS NULL AND id > ?";
+        }
+        String condition = "(" + column + " > ? OR (" + column + " = ? AND id > ?))";
+        if (sort == SortKey.EXPIRY) {
+            condition = "(" + condition + " OR " + column + " IS NULL)";
+        }
+        return condition;
+    }
+
+    private static Column sortColumn(SortKey sort) {
+        switch (sort) {
+            case NAME: return Column.NAME;
+            case PRICE: return Column.PRICE;
+            case STOCK: return Column.STOCK;
+            case EXPIRY: return Column.EXPIRY_DATE;
+            default: return Column.ID;
+        }
+    }
+
+    private static Object sortValue(SortKey sort, Product product) {
+        switch (sort) {
+            case NAME: return product.getName();
+            case PRICE: return product.getPrice() != null ? product.getPrice().toBigDecimal() : null;
+            case STOCK: return product.getStock();
+            case EXPIRY: return product.getExpiryDate() != null ? Date.valueOf(product.getExpiryDate()) : null;
+            default: return product.getId();
+        }
+    }
+
+    private Product mapColumns(ResultSet rs, Set<Column> columns) throws SQLException {
+        Product product = new Product();
+        product.setId(rs.getInt("id"));
+        if (columns.contains(Column.NAME)) {
+            product.setName(rs.getString("name"));
+        }
+        if (columns.contains(Column.PRICE)) {
+            product.setPrice(Money.of(rs.getBigDecimal("price")));
+        }
+        if (columns.contains(Column.STOCK)) {
+            product.setStock(rs.getInt("stock"));
+        }
+        if (columns.contains(Column.EXPIRY_DATE)) {
+            Date expiryDate = rs.getDate("expiry_date");
+            if (expiryDate != null) {
+                product.setExpiryDate(expiryDate.toLocalDate());
+            }
+        }
+        if (columns.contains(Column.CATEGORY)) {
+            product.setCategory(rs.getString("category"));
+        }
+        return product;
+    }
+
     public Product getProductById(int id) {
         String sql = "SELECT * FROM products WHERE id = ?";
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("ProductDAO.getProductById");
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
@@ -53,11 +286,11 @@ public class ProductDAO {
     public boolean createProduct(Product product) {
         String sql = "INSERT INTO products (name, price, stock, expiry_date, category) VALUES (?, ?, ?, ?, ?)";
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("ProductDAO.createProduct");
              PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
 
             stmt.setString(1, product.getName());
-            stmt.setBigDecimal(2, product.getPrice());
+            stmt.setBigDecimal(2, product.getPrice().toBigDecimal());
             stmt.setInt(3, product.getStock());
 
             if (product.getExpiryDate() != null) {
@@ -85,14 +318,74 @@ public class ProductDAO {
         return false;
     }
 
+    /**
+     * Inserts the products as one JDBC batch in a single transaction; with
+     * {@code rewriteBatchedStatements} the driver sends them as multi-row INSERTs. Either
+     * every product is inserted or, on any error, none is. Generated ids are not read back.
+     */
+    public boolean createProducts(List<Product> products) {
+        String sql = "INSERT INTO products (name, price, stock, expiry_date, category) VALUES (?, ?, ?, ?, ?)";
+        Connection conn = null;
+
+        try {
+            conn = DatabaseUtil.getConnection("ProductDAO.createProducts");
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (Product product : products) {
+                    stmt.setString(1, product.getName());
+                    stmt.setBigDecimal(2, product.getPrice().toBigDecimal());
+                    stmt.setInt(3, product.getStock());
+
+                    if (product.getExpiryDate() != null) {
+                        stmt.setDate(4, Date.valueOf(product.getExpiryDate()));
+                    } else {
+                        stmt.setNull(4, Types.DATE);
+                    }
+
+                    stmt.setString(5, product.getCategory());
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+
+            conn.commit();
+            return true;
+        } catch (SQLException e) {
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    System.err.println("Error rolling back transaction: " + ex.getMessage());
+                }
+            }
+            System.err.println("Error creating products: " + e.getMessage());
+        } finally {
+            if (conn != null) {
+                try {
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    System.err.println("Error resetting auto-commit: " + e.getMessage());
+                }
+                try {
+                    conn.close(); // Return the connection to the pool
+                } catch (SQLException e) {
+                    System.err.println("Error releasing connection: " + e.getMessage());
+                }
+            }
+        }
+
+        return false;
+    }
+
     public boolean updateProduct(Product product) {
         String sql = "UPDATE products SET name = ?, price = ?, stock = ?, expiry_date = ?, category = ? WHERE id = ?";
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("ProductDAO.updateProduct");
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, product.getName());
-            stmt.setBigDecimal(2, product.getPrice());
+            stmt.setBigDecimal(2, product.getPrice().toBigDecimal());
             stmt.setInt(3, product.getStock());
 
             if (product.getExpiryDate() != null) {
@@ -115,7 +408,7 @@ public class ProductDAO {
     public boolean deleteProduct(int id) {
         String sql = "DELETE FROM products WHERE id = ?";
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("ProductDAO.deleteProduct");
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setInt(1, id);
@@ -128,17 +421,24 @@ public class ProductDAO {
         return false;
     }
 
-    public List<Product> getExpiringProducts() {
+    /**
+     * Products whose expiry date falls within the next {@code days} days, expired ones
+     * included, soonest first. The cutoff is a plain date parameter so an index on
+     * {@code expiry_date} can serve the range.
+     */
+    public List<Product> getExpiringProducts(int days) {
         List<Product> products = new ArrayList<>();
-        String sql = "SELECT * FROM products WHERE expiry_date IS NOT NULL AND expiry_date <= DATE_ADD(CURRENT_DATE, INTERVAL 30 DAY)";
+        String sql = "SELECT * FROM products WHERE expiry_date <= ? ORDER BY expiry_date, id";
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = DatabaseUtil.getConnection("ProductDAO.getExpiringProducts");
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            while (rs.next()) {
-                Product product = mapResultSetToProduct(rs);
-                products.add(product);
+            stmt.setDate(1, Date.valueOf(Today.get().plusDays(days)));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    products.add(mapResultSetToProduct(rs));
+                }
             }
         } catch (SQLException e) {
             System.err.println("Error retrieving expiring products: " + e.getMessage());
@@ -151,7 +451,7 @@ public class ProductDAO {
         List<Product> products = new ArrayList<>();
         String sql = "SELECT * FROM products WHERE stock < 10";
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getConnection("ProductDAO.getLowStockProducts");
              Statement stmt = conn.createStatement();
              ResultSet rs = stmt.executeQuery(sql)) {
 
@@ -166,11 +466,12 @@ public class ProductDAO {
         return products;
     }
 
-    private Product mapResultSetToProduct(ResultSet rs) throws SQLException {
+    // Package-private so the benchmarks can measure it in isolation
+    Product mapResultSetToProduct(ResultSet rs) throws SQLException {
         Product product = new Product();
         product.setId(rs.getInt("id"));
         product.setName(rs.getString("name"));
-        product.setPrice(rs.getBigDecimal("price"));
+        product.setPrice(Money.of(rs.getBigDecimal("price")));
         product.setStock(rs.getInt("stock"));
 
         Date expiryDate = rs.getDate("expiry_date");
@@ -1,35 +1,128 @@
 package org.example.dao;
 
+import org.example.model.DailySalesSummary;
+import org.example.model.Money;
+import org.example.model.ProductPerformance;
 import org.example.model.Sale;
+import org.example.model.SaleLine;
+import org.example.model.SaleResult;
+import org.example.util.Config;
 import org.example.util.DatabaseUtil;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 
 public class SaleDAO {
 
-    public boolean createSale(Sale sale) {
+    /**
+     * Records the sale and decrements stock in one transaction. Each line's decrement is
+     * guarded by {@code stock >= quantity}; if any line fails the whole sale is rolled back
+     * and the failing lines are reported.
+     */
+    public SaleResult createSale(Sale sale) {
+        return createSale(sale, null, true);
+    }
+
+    /**
+     * Records the sale, optionally tagged with the id of the journal record it came from.
+     * A journal id that has already been applied is skipped, which makes journal replay
+     * idempotent. With {@code enforceStock} off, stock is decremented without the guard, for
+     * sales that were already accepted and paid for at the till: every product the sale takes
+     * below zero is written to {@code stock_oversells} and listed in
+     * {@link SaleResult#getOversoldItems()}.
+     */
+    public SaleResult createSale(Sale sale, String journalId, boolean enforceStock) {
+        String stockSql = enforceStock
+                ? "UPDATE products SET stock = stock - ? WHERE id = ? AND stock >= ?"
+                : "UPDATE products SET stock = stock - ? WHERE id = ?";
         String saleSql = "INSERT INTO sales (user_id, total_amount, sale_date) VALUES (?, ?, ?)";
         String itemSql = "INSERT INTO sale_items (sale_id, product_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
+        String summarySql = "INSERT INTO daily_sales_summary (sale_day, total_sales, item_count, sale_count) " +
+                "VALUES (?, ?, ?, 1) " +
+                "ON DUPLICATE KEY UPDATE total_sales = total_sales + VALUES(total_sales), " +
+                "item_count = item_count + VALUES(item_count), sale_count = sale_count + 1";
+        LocalDateTime saleDate = sale.getSaleDate() != null ? sale.getSaleDate() : LocalDateTime.now();
 
         Connection conn = null;
 
         try {
-            conn = DatabaseUtil.getConnection();
+            conn = DatabaseUtil.getConnection("SaleDAO.createSale");
             conn.setAutoCommit(false);
 
+            if (journalId != null) {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT sale_id FROM sale_journal_applied WHERE journal_id = ?")) {
+                    stmt.setString(1, journalId);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (rs.next()) {
+                            sale.setId(rs.getInt("sale_id"));
+                            return SaleResult.success(sale); // Already replayed
+                        }
+                    }
+                }
+            }
+
+            // Validate and decrement stock in one guarded batch, one update per product so
+            // separate lines of the same product are checked against their combined quantity.
+            // Products are applied in id order so concurrent tills lock rows in the same order.
+            Map<Integer, Integer> quantities = new TreeMap<>();
+            for (Sale.SaleItem item : sale.getItems()) {
+                quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+            }
+            List<Integer> productIds = new ArrayList<>(quantities.keySet());
+
+            try (PreparedStatement stmt = conn.prepareStatement(stockSql)) {
+                for (Integer productId : productIds) {
+                    int quantity = quantities.get(productId);
+                    stmt.setInt(1, quantity);
+                    stmt.setInt(2, productId);
+                    if (enforceStock) {
+                        stmt.setInt(3, quantity);
+                    }
+                    stmt.addBatch();
+                }
+                int[] updated = stmt.executeBatch();
+
+                Set<Integer> failedIds = new HashSet<>();
+                for (int i = 0; i < updated.length; i++) {
+                    if (updated[i] == 0) {
+                        failedIds.add(productIds.get(i));
+                    }
+                }
+                List<Sale.SaleItem> failed = new ArrayList<>();
+                for (Sale.SaleItem item : sale.getItems()) {
+                    if (failedIds.contains(item.getProductId())) {
+                        failed.add(item);
+                    }
+                }
+                if (!enforceStock) {
+                    for (Sale.SaleItem item : failed) {
+                        System.err.println("Sale references missing product " + item.getProductId() + "; stock not updated");
+                    }
+                } else if (!failed.isEmpty()) {
+                    conn.rollback();
+                    return SaleResult.insufficientStock(sale, failed);
+                }
+            }
+
+            Map<Integer, Integer> oversoldStock = enforceStock
+                    ? new TreeMap<>()
+                    : findNegativeStock(conn, productIds);
+
             // Insert sale
             try (PreparedStatement stmt = conn.prepareStatement(saleSql, Statement.RETURN_GENERATED_KEYS)) {
                 stmt.setInt(1, sale.getUserId());
-                stmt.setBigDecimal(2, sale.getTotalAmount());
+                stmt.setBigDecimal(2, sale.getTotalAmount().toBigDecimal());
 
-                if (sale.getSaleDate() != null) {
-                    stmt.setTimestamp(3, Timestamp.valueOf(sale.getSaleDate()));
-                } else {
-                    stmt.setTimestamp(3, Timestamp.valueOf(LocalDateTime.now()));
-                }
+                stmt.setTimestamp(3, Timestamp.valueOf(saleDate));
 
                 int affectedRows = stmt.executeUpdate();
 
@@ -52,24 +145,56 @@ public class SaleDAO {
                     stmt.setInt(1, sale.getId());
                     stmt.setInt(2, item.getProductId());
                     stmt.setInt(3, item.getQuantity());
-                    stmt.setBigDecimal(4, item.getUnitPrice());
+                    stmt.setBigDecimal(4, item.getUnitPrice().toBigDecimal());
                     stmt.addBatch();
                 }
                 stmt.executeBatch();
             }
 
-            // Update product stock
-            try (PreparedStatement stmt = conn.prepareStatement("UPDATE products SET stock = stock - ? WHERE id = ?")) {
-                for (Sale.SaleItem item : sale.getItems()) {
-                    stmt.setInt(1, item.getQuantity());
-                    stmt.setInt(2, item.getProductId());
+            // Roll the sale into its day's summary in the same transaction
+            try (PreparedStatement stmt = conn.prepareStatement(summarySql)) {
+                stmt.setDate(1, Date.valueOf(saleDate.toLocalDate()));
+                stmt.setBigDecimal(2, sale.getTotalAmount().toBigDecimal());
+                stmt.setInt(3, sale.getItems().size());
+                stmt.executeUpdate();
+            }
+
+            if (journalId != null) {
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO sale_journal_applied (journal_id, sale_id) VALUES (?, ?)")) {
+                    stmt.setString(1, journalId);
+                    stmt.setInt(2, sale.getId());
+                    stmt.executeUpdate();
+                }
+            }
+
+            if (oversoldStock.isEmpty()) {
+                conn.commit();
+                return SaleResult.success(sale);
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO stock_oversells (sale_id, journal_id, product_id, quantity, stock_after) " +
+                    "VALUES (?, ?, ?, ?, ?)")) {
+                for (Map.Entry<Integer, Integer> entry : oversoldStock.entrySet()) {
+                    stmt.setInt(1, sale.getId());
+                    stmt.setString(2, journalId);
+                    stmt.setInt(3, entry.getKey());
+                    stmt.setInt(4, quantities.get(entry.getKey()));
+                    stmt.setInt(5, entry.getValue());
                     stmt.addBatch();
                 }
                 stmt.executeBatch();
             }
-
             conn.commit();
-            return true;
+
+            List<Sale.SaleItem> oversold = new ArrayList<>();
+            for (Sale.SaleItem item : sale.getItems()) {
+                if (oversoldStock.containsKey(item.getProductId())) {
+                    oversold.add(item);
+                }
+            }
+            return SaleResult.oversold(sale, oversold);
 
         } catch (SQLException e) {
             if (conn != null) {
@@ -80,7 +205,9 @@ public class SaleDAO {
                 }
             }
             System.err.println("Error creating sale: " + e.getMessage());
-            return false;
+            return DatabaseUtil.isTransient(e)
+                    ? SaleResult.transientError(sale, e.getMessage())
+                    : SaleResult.error(sale, e.getMessage());
         } finally {
             if (conn != null) {
                 try {
@@ -88,64 +215,333 @@ public class SaleDAO {
                 } catch (SQLException e) {
                     System.err.println("Error resetting auto-commit: " + e.getMessage());
                 }
+                try {
+                    conn.close(); // Return the connection to the pool
+                } catch (SQLException e) {
+                    System.err.println("Error releasing connection: " + e.getMessage());
+                }
             }
         }
     }
 
-    public List<Sale> getSalesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Sale> sales = new ArrayList<>();
-        String sql = "SELECT * FROM sales WHERE sale_date BETWEEN ? AND ?";
+    // Stock of each of the products that is now below zero, by product id
+    private static Map<Integer, Integer> findNegativeStock(Connection conn, List<Integer> productIds) throws SQLException {
+        Map<Integer, Integer> negative = new TreeMap<>();
+        if (productIds.isEmpty()) {
+            return negative;
+        }
+        StringBuilder sql = new StringBuilder("SELECT id, stock FROM products WHERE stock < 0 AND id IN (");
+        for (int i = 0; i < productIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(')');
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < productIds.size(); i++) {
+                stmt.setInt(i + 1, productIds.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    negative.put(rs.getInt("id"), rs.getInt("stock"));
+                }
+            }
+        }
+        return negative;
+    }
+
+    /**
+     * Reads the per-day rollup for the given range, oldest day first. Cost is proportional
+     * to the number of days, not the number of sales.
+     */
+    public List<DailySalesSummary> getDailySummaries(LocalDate startDate, LocalDate endDate) {
+        List<DailySalesSummary> summaries = new ArrayList<>();
+        forEachDailySummary(startDate, endDate, summaries::add);
+        return summaries;
+    }
+
+    /**
+     * Streams the per-day rollup for the given range to the visitor, oldest day first.
+     *
+     * @return true if every day was visited, false if the query failed
+     */
+    public boolean forEachDailySummary(LocalDate startDate, LocalDate endDate, Consumer<DailySalesSummary> visitor) {
+        String sql = "SELECT sale_day, total_sales, item_count, sale_count FROM daily_sales_summary " +
+                "WHERE sale_day BETWEEN ? AND ? ORDER BY sale_day";
 
-        try (Connection conn = DatabaseUtil.getConnection();
+        try (Connection conn = DatabaseUtil.getStreamingConnection("SaleDAO.forEachDailySummary");
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
-            stmt.setTimestamp(1, Timestamp.valueOf(startDate));
-            stmt.setTimestamp(2, Timestamp.valueOf(endDate));
+            stmt.setDate(1, Date.valueOf(startDate));
+            stmt.setDate(2, Date.valueOf(endDate));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    visitor.accept(new DailySalesSummary(
+                            rs.getDate("sale_day").toLocalDate(),
+                            Money.of(rs.getBigDecimal("total_sales")),
+                            rs.getInt("item_count"),
+                            rs.getInt("sale_count")));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error retrieving daily sales summary: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Number of sale lines in the given days, read from the rollup rather than counted.
+     */
+    public long countSaleLines(LocalDate startDate, LocalDate endDate) {
+        String sql = "SELECT COALESCE(SUM(item_count), 0) FROM daily_sales_summary WHERE sale_day BETWEEN ? AND ?";
+
+        try (Connection conn = DatabaseUtil.getConnection("SaleDAO.countSaleLines");
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setDate(1, Date.valueOf(startDate));
+            stmt.setDate(2, Date.valueOf(endDate));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting sale lines: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Aggregates quantity and revenue per product over the range in the database.
+     *
+     * @param category only products in this category, or null for all
+     * @param limit    at most this many products, best sellers by revenue first; 0 for no limit
+     */
+    public List<ProductPerformance> getProductPerformance(LocalDateTime startDate, LocalDateTime endDate,
+                                                          String category, int limit) {
+        List<ProductPerformance> results = new ArrayList<>();
+        forEachProductPerformance(startDate, endDate, category, limit, results::add);
+        return results;
+    }
+
+    /**
+     * Streams the per-product aggregates of {@link #getProductPerformance} to the visitor,
+     * best sellers first.
+     *
+     * @return true if every product was visited, false if the query failed
+     */
+    public boolean forEachProductPerformance(LocalDateTime startDate, LocalDateTime endDate, String category,
+                                             int limit, Consumer<ProductPerformance> visitor) {
+        StringBuilder sql = new StringBuilder(
+                "SELECT p.id, p.name, p.category, SUM(si.quantity) AS quantity_sold, " +
+                "SUM(si.quantity * si.unit_price) AS revenue, " +
+                "SUM(SUM(si.quantity * si.unit_price)) OVER () AS total_revenue " +
+                "FROM sale_items si " +
+                "JOIN sales s ON s.id = si.sale_id " +
+                "JOIN products p ON p.id = si.product_id " +
+                "WHERE s.sale_date BETWEEN ? AND ?");
+        if (category != null) {
+            sql.append(" AND p.category = ?");
+        }
+        sql.append(" GROUP BY p.id, p.name, p.category ORDER BY revenue DESC, p.id");
+        if (limit > 0) {
+            sql.append(" LIMIT ?");
+        }
+
+        try (Connection conn = DatabaseUtil.getStreamingConnection("SaleDAO.forEachProductPerformance");
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            int index = 1;
+            stmt.setTimestamp(index++, Timestamp.valueOf(startDate));
+            stmt.setTimestamp(index++, Timestamp.valueOf(endDate));
+            if (category != null) {
+                stmt.setString(index++, category);
+            }
+            if (limit > 0) {
+                stmt.setInt(index, limit);
+            }
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Sale sale = new Sale();
-                    sale.setId(rs.getInt("id"));
-                    sale.setUserId(rs.getInt("user_id"));
-                    sale.setTotalAmount(rs.getBigDecimal("total_amount"));
-                    sale.setSaleDate(rs.getTimestamp("sale_date").toLocalDateTime());
+                    Money revenue = Money.of(rs.getBigDecimal("revenue"));
+                    Money total = Money.of(rs.getBigDecimal("total_revenue"));
+                    double percent = total != null && !total.isZero()
+                            ? revenue.getCents() * 100.0 / total.getCents()
+                            : 0.0;
+
+                    visitor.accept(new ProductPerformance(
+                            rs.getInt("id"),
+                            rs.getString("name"),
+                            rs.getString("category"),
+                            rs.getInt("quantity_sold"),
+                            revenue,
+                            percent));
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error retrieving product performance: " + e.getMessage());
+            return false;
+        }
+    }
 
-                    // Get sale items
-                    loadSaleItems(sale);
+    /**
+     * Streams unordered per-product quantity and revenue totals for the range, the partial
+     * aggregates that a partitioned report merges. Percentages are left at zero.
+     *
+     * @param category only products in this category, or null for all
+     * @return true if every product was visited, false if the query failed
+     */
+    public boolean forEachProductTotal(LocalDateTime startDate, LocalDateTime endDate, String category,
+                                       Consumer<ProductPerformance> visitor) {
+        String sql = "SELECT p.id, p.name, p.category, SUM(si.quantity) AS quantity_sold, " +
+                "SUM(si.quantity * si.unit_price) AS revenue " +
+                "FROM sale_items si " +
+                "JOIN sales s ON s.id = si.sale_id " +
+                "JOIN products p ON p.id = si.product_id " +
+                "WHERE s.sale_date BETWEEN ? AND ?" +
+                (category != null ? " AND p.category = ?" : "") +
+                " GROUP BY p.id, p.name, p.category";
 
-                    sales.add(sale);
+        try (Connection conn = DatabaseUtil.getStreamingConnection("SaleDAO.forEachProductTotal");
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setTimestamp(1, Timestamp.valueOf(startDate));
+            stmt.setTimestamp(2, Timestamp.valueOf(endDate));
+            if (category != null) {
+                stmt.setString(3, category);
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    visitor.accept(new ProductPerformance(
+                            rs.getInt("id"),
+                            rs.getString("name"),
+                            rs.getString("category"),
+                            rs.getInt("quantity_sold"),
+                            Money.of(rs.getBigDecimal("revenue")),
+                            0.0));
                 }
             }
+            return true;
         } catch (SQLException e) {
-            System.err.println("Error retrieving sales: " + e.getMessage());
+            System.err.println("Error retrieving product totals: " + e.getMessage());
+            return false;
         }
+    }
 
+    public List<Sale> getSalesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        List<Sale> sales = new ArrayList<>();
+        forEachSaleInRange(startDate, endDate, sales::add);
         return sales;
     }
 
-    private void loadSaleItems(Sale sale) {
-        String sql = "SELECT si.*, p.name FROM sale_items si " +
-                "JOIN products p ON si.product_id = p.id " +
-                "WHERE si.sale_id = ?";
+    /**
+     * Streams the sales in a date range to the visitor one at a time, each with its items loaded.
+     * Rows are read through a forward-only cursor in batches of {@link Config#SALES_STREAM_FETCH_SIZE},
+     * so memory use stays constant no matter how long the range is.
+     *
+     * @return true if every sale in the range was visited, false if the query failed
+     */
+    public boolean forEachSaleInRange(LocalDateTime startDate, LocalDateTime endDate, Consumer<Sale> visitor) {
+        // One pass over sales and their line items, ordered so each sale's rows are contiguous
+        String sql = "SELECT s.id, s.user_id, s.total_amount, s.sale_date, " +
+                "si.product_id, si.quantity, si.unit_price, p.name " +
+                "FROM sales s " +
+                "LEFT JOIN (sale_items si JOIN products p ON si.product_id = p.id) ON si.sale_id = s.id " +
+                "WHERE s.sale_date BETWEEN ? AND ? " +
+                "ORDER BY s.id";
 
-        try (Connection conn = DatabaseUtil.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (Connection conn = DatabaseUtil.getStreamingConnection("SaleDAO.forEachSaleInRange");
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
 
-            stmt.setInt(1, sale.getId());
+            stmt.setFetchSize(Config.SALES_STREAM_FETCH_SIZE);
+            stmt.setTimestamp(1, Timestamp.valueOf(startDate));
+            stmt.setTimestamp(2, Timestamp.valueOf(endDate));
 
             try (ResultSet rs = stmt.executeQuery()) {
+                Sale sale = null;
                 while (rs.next()) {
-                    int productId = rs.getInt("product_id");
-                    String productName = rs.getString("name");
-                    int quantity = rs.getInt("quantity");
-                    java.math.BigDecimal unitPrice = rs.getBigDecimal("unit_price");
+                    int saleId = rs.getInt("id");
+                    if (sale == null || sale.getId() != saleId) {
+                        if (sale != null) {
+                            visitor.accept(sale);
+                        }
+                        sale = mapResultSetToSale(rs);
+                    }
+                    addSaleItem(sale, rs);
+                }
+                if (sale != null) {
+                    visitor.accept(sale);
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error retrieving sales: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Streams every line item sold in a date range, flat, in sale order. Unlike
+     * {@link #forEachSaleInRange} no sales are assembled, so nothing is held between rows;
+     * rows come through a forward-only cursor in batches of {@link Config#SALES_STREAM_FETCH_SIZE}.
+     *
+     * @return true if every line was visited, false if the query failed
+     */
+    public boolean forEachSaleLine(LocalDateTime startDate, LocalDateTime endDate, Consumer<SaleLine> visitor) {
+        String sql = "SELECT s.id, s.sale_date, s.user_id, si.product_id, p.name, si.quantity, si.unit_price " +
+                "FROM sales s " +
+                "JOIN sale_items si ON si.sale_id = s.id " +
+                "JOIN products p ON p.id = si.product_id " +
+                "WHERE s.sale_date BETWEEN ? AND ? " +
+                "ORDER BY s.id, si.id";
 
-                    Sale.SaleItem item = new Sale.SaleItem(productId, productName, quantity, unitPrice);
-                    sale.getItems().add(item);
+        try (Connection conn = DatabaseUtil.getStreamingConnection("SaleDAO.forEachSaleLine");
+             PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+
+            stmt.setFetchSize(Config.SALES_STREAM_FETCH_SIZE);
+            stmt.setTimestamp(1, Timestamp.valueOf(startDate));
+            stmt.setTimestamp(2, Timestamp.valueOf(endDate));
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    visitor.accept(new SaleLine(
+                            rs.getInt(1),
+                            rs.getTimestamp(2).toLocalDateTime(),
+                            rs.getInt(3),
+                            rs.getInt(4),
+                            rs.getString(5),
+                            rs.getInt(6),
+                            Money.of(rs.getBigDecimal(7))));
                 }
             }
+            return true;
         } catch (SQLException e) {
-            System.err.println("Error retrieving sale items: " + e.getMessage());
+            System.err.println("Error retrieving sale lines: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private Sale mapResultSetToSale(ResultSet rs) throws SQLException {
+        Sale sale = new Sale();
+        sale.setId(rs.getInt("id"));
+        sale.setUserId(rs.getInt("user_id"));
+        sale.setTotalAmount(Money.of(rs.getBigDecimal("total_amount")));
+        sale.setSaleDate(rs.getTimestamp("sale_date").toLocalDateTime());
+        return sale;
+    }
+
+    // Adds the line item on the current row, if any (sales without items come back with NULLs)
+    private void addSaleItem(Sale sale, ResultSet rs) throws SQLException {
+        int productId = rs.getInt("product_id");
+        if (rs.wasNull()) {
+            return;
         }
+        String productName = rs.getString("name");
+        int quantity = rs.getInt("quantity");
+        Money unitPrice = Money.of(rs.getBigDecimal("unit_price"));
+
+        Sale.SaleItem item = new Sale.SaleItem(productId, productName, quantity, unitPrice);
+        sale.addItem(item);
     }
-}
\ No newline at end of file
+}
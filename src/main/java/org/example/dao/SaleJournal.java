@@ -0,0 +1,478 @@
+package org.example.dao;
+
+import org.example.model.Money;
+import org.example.model.Sale;
+import org.example.model.SaleResult;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Local, memory-mapped write-ahead journal for sales.
+ *
+ * A checkout is durable once its record has been appended and the mapping forced to disk,
+ * which does not depend on MySQL at all. A background drainer replays pending records into
+ * {@code sales}/{@code sale_items} through {@link SaleDAO#createSale(Sale, String, boolean)},
+ * which skips journal ids that have already been applied, so replaying twice is harmless.
+ *
+ * Every journaled sale was accepted and paid for at the till, so replay always records it,
+ * even when another till has sold the same stock in the meantime: stock is decremented
+ * without the guard, and any product taken below zero is written to {@code stock_oversells}
+ * and reported to the oversell listener. Failures to write the sale are retried with
+ * backoff, in journal order. Only a record that cannot be decoded is moved aside, to the
+ * rejected file next to the journal, so it does not hold up the sales behind it. Each
+ * rejected line is tab separated: time, journal id, reason, record magic and the record
+ * payload in Base64.
+ *
+ * File layout: a fixed header followed by records. Each record carries the journal epoch;
+ * the epoch is bumped whenever the file is rewound after being fully drained, so stale
+ * records from an earlier pass are never mistaken for pending ones. Records written before
+ * amounts moved to {@link Money} use the legacy record magic and are still replayed.
+ */
+public class SaleJournal {
+    private static final int HEADER_MAGIC = 0x534A4E4C; // "SJNL"
+    private static final int RECORD_MAGIC = 0x53414C32; // "SAL2": amounts as long cents
+    private static final int LEGACY_RECORD_MAGIC = 0x53414C45; // "SALE": amounts as decimal text / double
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_HEADER_SIZE = 16;
+
+    // Header field offsets
+    private static final int EPOCH_OFFSET = 8;
+    private static final int DRAINED_OFFSET = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final Path rejectedPath;
+    private final SaleDAO saleDAO;
+    private final long retryMillis;
+    private volatile Consumer<Sale> replayListener;
+    private volatile Consumer<SaleResult> oversellListener;
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    // Guarded by this
+    private int epoch;
+    private int writePosition;
+    private int drainedPosition;
+    private int pendingCount;
+
+    // Group commit: everything up to this (epoch, position) mark is on disk
+    private final Object flushLock = new Object();
+    private final AtomicLong flushedMark = new AtomicLong();
+
+    private Thread drainer;
+    private volatile boolean running = false;
+
+    private SaleJournal(FileChannel channel, MappedByteBuffer buffer, Path rejectedPath, SaleDAO saleDAO,
+                        long retryMillis) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.rejectedPath = rejectedPath;
+        this.saleDAO = saleDAO;
+        this.retryMillis = retryMillis;
+    }
+
+    /**
+     * Sets a callback run on the drainer thread after each sale is written to the database.
+     */
+    public void setReplayListener(Consumer<Sale> listener) {
+        this.replayListener = listener;
+    }
+
+    /**
+     * Sets a callback run on the drainer thread after a replayed sale took stock below zero,
+     * with the result listing the oversold lines. The replay listener is called as well.
+     */
+    public void setOversellListener(Consumer<SaleResult> listener) {
+        this.oversellListener = listener;
+    }
+
+    /**
+     * Returns the file that unreadable journal records are moved to.
+     */
+    public Path getRejectedPath() {
+        return rejectedPath;
+    }
+
+    /**
+     * Opens (or creates) the journal and scans it to find the records still waiting to be
+     * written to the database.
+     */
+    public static SaleJournal open(Path path, int capacityBytes, SaleDAO saleDAO, long retryMillis) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        int capacity = (int) Math.max(channel.size(), capacityBytes);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+
+        Path rejectedPath = path.resolveSibling(path.getFileName() + ".rejected");
+        SaleJournal journal = new SaleJournal(channel, buffer, rejectedPath, saleDAO, retryMillis);
+        journal.recover();
+        return journal;
+    }
+
+    private synchronized void recover() {
+        if (buffer.getInt(0) != HEADER_MAGIC) {
+            // Fresh file
+            buffer.putInt(0, HEADER_MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(EPOCH_OFFSET, 1);
+            buffer.putInt(DRAINED_OFFSET, HEADER_SIZE);
+            buffer.force();
+        }
+
+        epoch = buffer.getInt(EPOCH_OFFSET);
+        drainedPosition = buffer.getInt(DRAINED_OFFSET);
+
+        // Walk the valid records of the current epoch to find the end of the journal
+        int position = HEADER_SIZE;
+        int next;
+        while ((next = nextRecordEnd(position)) > 0) {
+            position = next;
+        }
+        writePosition = position;
+        flushedMark.set(mark(epoch, position));
+
+        if (drainedPosition < HEADER_SIZE || drainedPosition > writePosition) {
+            drainedPosition = HEADER_SIZE;
+        }
+
+        pendingCount = 0;
+        for (position = drainedPosition; position < writePosition && (next = nextRecordEnd(position)) > 0; position = next) {
+            pendingCount++;
+        }
+    }
+
+    /**
+     * Appends the sale and waits until it is on disk.
+     *
+     * @return false if the journal is full; the caller should write the sale directly instead
+     */
+    public boolean append(Sale sale) throws IOException {
+        byte[] payload = encode(sale);
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        long end;
+
+        synchronized (this) {
+            if (writePosition + recordSize > buffer.capacity()) {
+                if (drainedPosition < writePosition) {
+                    return false;
+                }
+                rewind();
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+
+            ByteBuffer out = buffer.duplicate();
+            out.position(writePosition);
+            out.putInt(RECORD_MAGIC);
+            out.putInt(epoch);
+            out.putInt(payload.length);
+            out.putInt((int) crc.getValue());
+            out.put(payload);
+
+            writePosition += recordSize;
+            pendingCount++;
+            end = mark(epoch, writePosition);
+            notifyAll(); // Wake the drainer
+        }
+
+        awaitDurable(end);
+        return true;
+    }
+
+    // Leader/follower group commit: one force() covers every append made before it
+    private void awaitDurable(long end) {
+        if (flushedMark.get() >= end) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (flushedMark.get() >= end) {
+                return;
+            }
+            long target;
+            synchronized (this) {
+                target = mark(epoch, writePosition);
+            }
+            buffer.force();
+            flushedMark.accumulateAndGet(target, Math::max);
+        }
+    }
+
+    private static long mark(int epoch, int position) {
+        return ((long) epoch << 32) | position;
+    }
+
+    // Only called with everything drained, so no pending record is lost
+    private void rewind() {
+        epoch++;
+        writePosition = HEADER_SIZE;
+        drainedPosition = HEADER_SIZE;
+        pendingCount = 0;
+        buffer.putInt(EPOCH_OFFSET, epoch);
+        buffer.putInt(DRAINED_OFFSET, drainedPosition);
+        buffer.force();
+        flushedMark.accumulateAndGet(mark(epoch, HEADER_SIZE), Math::max);
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    /**
+     * Returns the number of unreadable records moved to the rejected file since the journal
+     * was opened.
+     */
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * Starts the background thread that replays pending records into the database.
+     */
+    public synchronized void startDrainer() {
+        if (running) {
+            return;
+        }
+        running = true;
+        drainer = new Thread(this::drainLoop, "sale-journal-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    public void close() {
+        synchronized (this) {
+            running = false;
+            notifyAll();
+        }
+        if (drainer != null) {
+            drainer.interrupt();
+        }
+        try {
+            buffer.force();
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing sales journal: " + e.getMessage());
+        }
+    }
+
+    private void drainLoop() {
+        long backoff = retryMillis;
+        while (running) {
+            int start;
+            int end;
+            byte[] payload;
+            boolean legacy;
+
+            synchronized (this) {
+                while (running && drainedPosition >= writePosition) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (!running) {
+                    return;
+                }
+                start = drainedPosition;
+                end = nextRecordEnd(start);
+                if (end < 0) {
+                    // Should not happen: the scan and appends only ever produce valid records
+                    System.err.println("Corrupt sales journal record at offset " + start + ", skipping the rest");
+                    drainedPosition = writePosition;
+                    pendingCount = 0;
+                    buffer.putInt(DRAINED_OFFSET, drainedPosition);
+                    continue;
+                }
+                payload = readPayload(start);
+                legacy = buffer.getInt(start) == LEGACY_RECORD_MAGIC;
+            }
+
+            Sale sale;
+            try {
+                sale = decode(payload, legacy);
+            } catch (IOException | RuntimeException e) {
+                if (reject(start, end, payload, legacy, "Unreadable record: " + e.getMessage())) {
+                    backoff = retryMillis;
+                } else if (!pause(backoff)) {
+                    return;
+                }
+                continue;
+            }
+
+            // Already paid for: recorded even if another till sold the stock first
+            SaleResult result = saleDAO.createSale(sale, sale.getJournalId(), false);
+            if (result.isSuccess()) {
+                advanceDrained(start, end);
+                backoff = retryMillis;
+                if (!result.getOversoldItems().isEmpty()) {
+                    System.err.println("Journaled sale " + sale.getJournalId() + " oversold " +
+                            describeOversold(result) + "; recorded in stock_oversells");
+                    Consumer<SaleResult> listener = oversellListener;
+                    if (listener != null) {
+                        listener.accept(result);
+                    }
+                }
+                Consumer<Sale> listener = replayListener;
+                if (listener != null) {
+                    listener.accept(sale);
+                }
+            } else {
+                System.err.println("Could not replay journaled sale " + sale.getJournalId() +
+                        ", retrying in " + backoff + " ms: " + result.getMessage());
+                if (!pause(backoff)) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, 30000);
+            }
+        }
+    }
+
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            return false;
+        }
+    }
+
+    private static String describeOversold(SaleResult result) {
+        StringBuilder sb = new StringBuilder("product");
+        for (Sale.SaleItem item : result.getOversoldItems()) {
+            sb.append(' ').append(item.getProductId());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends the undecodable record to the rejected file and moves past it.
+     *
+     * @return false if the rejected file could not be written; the record stays pending
+     */
+    private boolean reject(int start, int end, byte[] payload, boolean legacy, String reason) {
+        // The journal id is inside the payload that could not be decoded
+        String line = LocalDateTime.now() + "\tunknown\t" + reason.replaceAll("[\\t\\r\\n]", " ") + "\t"
+                + (legacy ? "SALE" : "SAL2") + "\t" + Base64.getEncoder().encodeToString(payload) + "\n";
+        try {
+            Files.write(rejectedPath, line.getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.DSYNC);
+        } catch (IOException e) {
+            System.err.println("Could not write rejected journal record to " + rejectedPath + ": " + e.getMessage());
+            return false;
+        }
+        System.err.println("Journal record at offset " + start + " could not be read (" + reason +
+                "); moved to " + rejectedPath + " for review");
+        rejectedCount.incrementAndGet();
+        advanceDrained(start, end);
+        return true;
+    }
+
+    private synchronized void advanceDrained(int start, int end) {
+        if (drainedPosition == start) {
+            drainedPosition = end;
+            pendingCount--;
+            // Not forced: replay is idempotent, so a lagging checkpoint only costs a re-check
+            buffer.putInt(DRAINED_OFFSET, drainedPosition);
+        }
+    }
+
+    /**
+     * Returns the end offset of the valid record starting at {@code position}, or -1 if
+     * there is no valid record of the current epoch there.
+     */
+    private int nextRecordEnd(int position) {
+        if (position + RECORD_HEADER_SIZE > buffer.capacity()) {
+            return -1;
+        }
+        int magic = buffer.getInt(position);
+        if ((magic != RECORD_MAGIC && magic != LEGACY_RECORD_MAGIC) || buffer.getInt(position + 4) != epoch) {
+            return -1;
+        }
+        int length = buffer.getInt(position + 8);
+        if (length <= 0 || position + RECORD_HEADER_SIZE + length > buffer.capacity()) {
+            return -1;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(readPayload(position));
+        if ((int) crc.getValue() != buffer.getInt(position + 12)) {
+            return -1;
+        }
+        return position + RECORD_HEADER_SIZE + length;
+    }
+
+    private byte[] readPayload(int position) {
+        byte[] payload = new byte[buffer.getInt(position + 8)];
+        ByteBuffer in = buffer.duplicate();
+        in.position(position + RECORD_HEADER_SIZE);
+        in.get(payload);
+        return payload;
+    }
+
+    private static byte[] encode(Sale sale) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(sale.getJournalId());
+            out.writeInt(sale.getUserId());
+            out.writeUTF(sale.getSaleDate() != null ? sale.getSaleDate().toString() : LocalDateTime.now().toString());
+            out.writeUTF(sale.getPaymentMethod() != null ? sale.getPaymentMethod() : "");
+            out.writeLong(sale.getDiscountAmount().getCents());
+            out.writeUTF(sale.getDiscountType() != null ? sale.getDiscountType() : "None");
+            out.writeInt(sale.getItems().size());
+            for (Sale.SaleItem item : sale.getItems()) {
+                out.writeInt(item.getProductId());
+                out.writeUTF(item.getProductName() != null ? item.getProductName() : "");
+                out.writeInt(item.getQuantity());
+                out.writeLong(item.getUnitPrice().getCents());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Sale decode(byte[] payload, boolean legacy) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            Sale sale = new Sale();
+            sale.setJournalId(in.readUTF());
+            sale.setUserId(in.readInt());
+            sale.setSaleDate(LocalDateTime.parse(in.readUTF()));
+            String paymentMethod = in.readUTF();
+            sale.setPaymentMethod(paymentMethod.isEmpty() ? null : paymentMethod);
+            sale.setDiscountAmount(legacy
+                    ? Money.of(BigDecimal.valueOf(in.readDouble()))
+                    : Money.ofCents(in.readLong()));
+            sale.setDiscountType(in.readUTF());
+            int itemCount = in.readInt();
+            for (int i = 0; i < itemCount; i++) {
+                int productId = in.readInt();
+                String productName = in.readUTF();
+                int quantity = in.readInt();
+                Money unitPrice = legacy
+                        ? Money.of(new BigDecimal(in.readUTF()))
+                        : Money.ofCents(in.readLong());
+                sale.addItem(new Sale.SaleItem(productId, productName, quantity, unitPrice));
+            }
+            return sale;
+        }
+    }
+}
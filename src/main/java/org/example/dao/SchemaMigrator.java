@@ -0,0 +1,254 @@
+package org.example.dao;
+
+import org.example.util.Config;
+import org.example.util.DatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Creates and upgrades the database schema at startup.
+ *
+ * Each migration has a version number and runs once; applied versions are recorded in
+ * {@code schema_version}. Table creation uses IF NOT EXISTS and indexes are only added
+ * when no index already starts with the column, so migrating a database that was set up
+ * by hand is safe. On MySQL the pass holds the named lock {@code pos_schema}, so tills
+ * started together migrate one after another and the later ones find nothing left to do. After migrating, the hot queries are run through EXPLAIN and a warning
+ * is printed for any that has no usable index.
+ */
+public class SchemaMigrator {
+
+    private interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static class Migration {
+        final int version;
+        final String description;
+        final Step step;
+
+        Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    // Queries on the checkout, report and alert paths, with sample parameters for EXPLAIN
+    private static final String[][] HOT_QUERIES = {
+            {"sales by date range", "SELECT id FROM sales WHERE sale_date BETWEEN '2000-01-01' AND '2000-01-31'"},
+            {"sale items of a sale", "SELECT id FROM sale_items WHERE sale_id = 1"},
+            {"sales of a product", "SELECT id FROM sale_items WHERE product_id = 1"},
+            {"expiring products", "SELECT id FROM products WHERE expiry_date <= '2000-01-31'"},
+            {"low stock products", "SELECT id FROM products WHERE stock < 10"},
+            {"daily summary range", "SELECT sale_day FROM daily_sales_summary WHERE sale_day BETWEEN '2000-01-01' AND '2000-01-31'"},
+    };
+
+    private final List<Migration> migrations = new ArrayList<>();
+
+    public SchemaMigrator() {
+        migrations.add(new Migration(1, "Core tables", conn -> execute(conn,
+                "CREATE TABLE IF NOT EXISTS users (" +
+                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "username VARCHAR(50) NOT NULL UNIQUE, " +
+                        "password VARCHAR(255) NOT NULL, " +
+                        "role VARCHAR(20) NOT NULL)",
+                "CREATE TABLE IF NOT EXISTS products (" +
+                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "name VARCHAR(255) NOT NULL, " +
+                        "price DECIMAL(10, 2) NOT NULL, " +
+                        "stock INT NOT NULL DEFAULT 0, " +
+                        "expiry_date DATE NULL, " +
+                        "category VARCHAR(100) NULL)",
+                "CREATE TABLE IF NOT EXISTS sales (" +
+                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "user_id INT NOT NULL, " +
+                        "total_amount DECIMAL(12, 2) NOT NULL, " +
+                        "sale_date DATETIME NOT NULL)",
+                "CREATE TABLE IF NOT EXISTS sale_items (" +
+                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "sale_id INT NOT NULL, " +
+                        "product_id INT NOT NULL, " +
+                        "quantity INT NOT NULL, " +
+                        "unit_price DECIMAL(10, 2) NOT NULL)")));
+
+        migrations.add(new Migration(2, "Sales journal replay markers", conn -> execute(conn,
+                "CREATE TABLE IF NOT EXISTS sale_journal_applied (" +
+                        "journal_id VARCHAR(36) NOT NULL PRIMARY KEY, " +
+                        "sale_id INT NOT NULL, " +
+                        "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)")));
+
+        migrations.add(new Migration(3, "Daily sales rollup", conn -> {
+            execute(conn,
+                    "CREATE TABLE IF NOT EXISTS daily_sales_summary (" +
+                            "sale_day DATE NOT NULL PRIMARY KEY, " +
+                            "total_sales DECIMAL(14, 2) NOT NULL DEFAULT 0, " +
+                            "item_count INT NOT NULL DEFAULT 0, " +
+                            "sale_count INT NOT NULL DEFAULT 0)");
+            // Backfill from the existing sales history, unless the rollup is already populated
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM daily_sales_summary")) {
+                if (rs.next() && rs.getInt(1) == 0) {
+                    stmt.executeUpdate("INSERT INTO daily_sales_summary (sale_day, total_sales, item_count, sale_count) " +
+                            "SELECT DATE(s.sale_date), SUM(s.total_amount), COALESCE(SUM(ic.item_count), 0), COUNT(*) " +
+                            "FROM sales s " +
+                            "LEFT JOIN (SELECT sale_id, COUNT(*) AS item_count FROM sale_items GROUP BY sale_id) ic " +
+                            "ON ic.sale_id = s.id " +
+                            "GROUP BY DATE(s.sale_date)");
+                }
+            }
+        }));
+
+        migrations.add(new Migration(4, "Indexes for report, checkout and alert queries", conn -> {
+            ensureIndex(conn, "sales", "idx_sales_sale_date", "sale_date");
+            ensureIndex(conn, "sale_items", "idx_sale_items_sale_id", "sale_id");
+            ensureIndex(conn, "sale_items", "idx_sale_items_product_id", "product_id");
+            ensureIndex(conn, "products", "idx_products_expiry_date", "expiry_date");
+            ensureIndex(conn, "products", "idx_products_stock", "stock");
+            // Sort keys for the paged Products table
+            ensureIndex(conn, "products", "idx_products_name", "name");
+            ensureIndex(conn, "products", "idx_products_price", "price");
+            ensureIndex(conn, "products", "idx_products_category", "category");
+        }));
+
+        migrations.add(new Migration(5, "Oversold stock audit", conn -> execute(conn,
+                "CREATE TABLE IF NOT EXISTS stock_oversells (" +
+                        "id INT AUTO_INCREMENT PRIMARY KEY, " +
+                        "sale_id INT NOT NULL, " +
+                        "journal_id VARCHAR(36) NULL, " +
+                        "product_id INT NOT NULL, " +
+                        "quantity INT NOT NULL, " +
+                        "stock_after INT NOT NULL, " +
+                        "recorded_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)")));
+    }
+
+    /**
+     * Applies every migration newer than the recorded schema version, then checks the hot
+     * queries' plans.
+     *
+     * @return false if a migration failed; the schema is left at the last good version
+     */
+    public boolean migrate() {
+        try (Connection conn = DatabaseUtil.getConnection()) {
+            boolean locking = isMySql(conn);
+            if (locking && !acquireLock(conn)) {
+                System.err.println("Schema migration failed: timed out waiting for another till to finish migrating");
+                return false;
+            }
+            try {
+                migrate(conn);
+            } finally {
+                if (locking) {
+                    releaseLock(conn);
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Schema migration failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void migrate(Connection conn) throws SQLException {
+        execute(conn, "CREATE TABLE IF NOT EXISTS schema_version (" +
+                "version INT NOT NULL PRIMARY KEY, " +
+                "description VARCHAR(255) NOT NULL, " +
+                "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)");
+
+        // Read under the lock, so versions applied by a till that held it first are skipped
+        int current = currentVersion(conn);
+        for (Migration migration : migrations) {
+            if (migration.version <= current) {
+                continue;
+            }
+            migration.step.apply(conn);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                stmt.setInt(1, migration.version);
+                stmt.setString(2, migration.description);
+                stmt.executeUpdate();
+            }
+            System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+        }
+
+        verifyIndexes(conn);
+    }
+
+    // Named locks are MySQL's; other databases (H2 in the tests) migrate unlocked
+    private static boolean isMySql(Connection conn) throws SQLException {
+        String product = conn.getMetaData().getDatabaseProductName();
+        return product != null && (product.equalsIgnoreCase("MySQL") || product.equalsIgnoreCase("MariaDB"));
+    }
+
+    private static boolean acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT GET_LOCK('pos_schema', ?)")) {
+            stmt.setInt(1, Config.SCHEMA_LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    // The lock belongs to the session, so it is released on the connection that took it
+    private static void releaseLock(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SELECT RELEASE_LOCK('pos_schema')");
+        } catch (SQLException e) {
+            System.err.println("Error releasing schema lock: " + e.getMessage());
+        }
+    }
+
+    private int currentVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(version), 0) FROM schema_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Warns about hot queries for which the database has no index to use. A small table may
+     * still be scanned by choice; only a plan with no candidate index at all is reported.
+     */
+    private void verifyIndexes(Connection conn) {
+        for (String[] query : HOT_QUERIES) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery("EXPLAIN " + query[1])) {
+                while (rs.next()) {
+                    if ("ALL".equalsIgnoreCase(rs.getString("type")) && rs.getString("possible_keys") == null) {
+                        System.err.println("Warning: no index for " + query[0] + "; it will scan all of "
+                                + rs.getString("table"));
+                    }
+                }
+            } catch (SQLException e) {
+                System.err.println("Could not check the plan for " + query[0] + ": " + e.getMessage());
+            }
+        }
+    }
+
+    // Adds the index unless some index on the table already has the column first
+    private static void ensureIndex(Connection conn, String table, String indexName, String column) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        try (ResultSet rs = metaData.getIndexInfo(conn.getCatalog(), null, table, false, true)) {
+            while (rs.next()) {
+                if (rs.getShort("ORDINAL_POSITION") == 1 && column.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+                    return;
+                }
+            }
+        }
+        execute(conn, "CREATE INDEX " + indexName + " ON " + table + " (" + column + ")");
+    }
+
+    private static void execute(Connection conn, String... statements) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String sql : statements) {
+                stmt.execute(sql);
+            }
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package org.example.model;
+
+import java.time.LocalDate;
+
+public class DailySalesSummary {
+    private LocalDate date;
+    private Money totalSales;
+    private int itemCount;
+    private int saleCount;
+
+    public DailySalesSummary() {
+        totalSales = Money.ZERO;
+    }
+
+    public DailySalesSummary(LocalDate date, Money totalSales, int itemCount, int saleCount) {
+        this.date = date;
+        this.totalSales = totalSales;
+        this.itemCount = itemCount;
+        this.saleCount = saleCount;
+    }
+
+    // Getters and setters
+    public LocalDate getDate() { return date; }
+    public void setDate(LocalDate date) { this.date = date; }
+
+    public Money getTotalSales() { return totalSales; }
+    public void setTotalSales(Money totalSales) { this.totalSales = totalSales; }
+
+    public int getItemCount() { return itemCount; }
+    public void setItemCount(int itemCount) { this.itemCount = itemCount; }
+
+    public int getSaleCount() { return saleCount; }
+    public void setSaleCount(int saleCount) { this.saleCount = saleCount; }
+
+    public Money getAverageSale() {
+        if (saleCount == 0) {
+            return Money.ZERO;
+        }
+        return totalSales.dividedBy(saleCount);
+    }
+}
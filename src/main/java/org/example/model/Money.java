@@ -0,0 +1,150 @@
+package org.example.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable amount of money held as a count of minor units (cents).
+ *
+ * Arithmetic is exact long arithmetic; only division and percentages round, half-up,
+ * to the nearest cent. Values from 0.00 to 100.00 come from a shared cache, and the
+ * cart keeps its running totals as plain longs, so ringing up items does not allocate.
+ * Conversion to and from {@link BigDecimal} is only needed at the JDBC boundary.
+ */
+public final class Money implements Comparable<Money> {
+    public static final int SCALE = 2;
+
+    private static final int CACHE_MAX_CENTS = 10000;
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+    private static final Money[] CACHE = new Money[CACHE_MAX_CENTS + 1];
+
+    static {
+        for (int i = 0; i < CACHE.length; i++) {
+            CACHE[i] = new Money(i);
+        }
+    }
+
+    public static final Money ZERO = CACHE[0];
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    public static Money ofCents(long cents) {
+        if (cents >= 0 && cents <= CACHE_MAX_CENTS) {
+            return CACHE[(int) cents];
+        }
+        return new Money(cents);
+    }
+
+    /**
+     * Converts a decimal amount, rounding half-up to whole cents. Returns null for null.
+     */
+    public static Money of(BigDecimal amount) {
+        if (amount == null) {
+            return null;
+        }
+        return ofCents(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Parses a plain decimal such as "12.5" or "3".
+     *
+     * @throws NumberFormatException if the text is not a number
+     */
+    public static Money parse(String text) {
+        return of(new BigDecimal(text.trim()));
+    }
+
+    public long getCents() { return cents; }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money times(int quantity) {
+        return ofCents(Math.multiplyExact(cents, (long) quantity));
+    }
+
+    /**
+     * Divides evenly, rounding half-up to the nearest cent.
+     */
+    public Money dividedBy(int divisor) {
+        return ofCents(divideRounded(cents, divisor));
+    }
+
+    /**
+     * Returns the given percentage of this amount, such as 12.5 for 12.5%, rounded half-up
+     * to the nearest cent. The product is computed exactly, so rounding happens only once.
+     */
+    public Money percent(BigDecimal percent) {
+        return ofCents(BigDecimal.valueOf(cents).multiply(percent)
+                .divide(ONE_HUNDRED, 0, RoundingMode.HALF_UP)
+                .longValueExact());
+    }
+
+    public Money max(Money other) {
+        return cents >= other.cents ? this : other;
+    }
+
+    public boolean isZero() { return cents == 0; }
+    public boolean isNegative() { return cents < 0; }
+
+    public boolean isGreaterThan(Money other) {
+        return cents > other.cents;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    public double toDouble() {
+        return cents / 100.0;
+    }
+
+    static long divideRounded(long dividend, long divisor) {
+        long quotient = dividend / divisor;
+        long remainder = dividend % divisor;
+        if (Math.abs(remainder) * 2 >= Math.abs(divisor)) {
+            quotient += (dividend < 0) == (divisor < 0) ? 1 : -1;
+        }
+        return quotient;
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Money && ((Money) o).cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    // Plain two-decimal form, e.g. "12.50" or "-0.05"
+    @Override
+    public String toString() {
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        StringBuilder sb = new StringBuilder(12);
+        if (cents < 0) {
+            sb.append('-');
+        }
+        sb.append(abs / 100).append('.');
+        if (fraction < 10) {
+            sb.append('0');
+        }
+        return sb.append(fraction).toString();
+    }
+}
@@ -1,12 +1,14 @@
 package org.example.model;
 
-import java.math.BigDecimal;
+import org.example.util.Config;
+import org.example.util.Today;
+
 import java.time.LocalDate;
 
 public class Product {
     private int id;
     private String name;
-    private BigDecimal price;
+    private Money price;
     private int stock;
     private LocalDate expiryDate;
     private String category;
@@ -14,7 +16,7 @@ public class Product {
 
     public Product() {}
 
-    public Product(int id, String name, BigDecimal price, int stock, LocalDate expiryDate, String category) {
+    public Product(int id, String name, Money price, int stock, LocalDate expiryDate, String category) {
         this.id = id;
         this.name = name;
         this.price = price;
@@ -24,7 +26,7 @@ public class Product {
     }
 
     // Extended constructor with description
-    public Product(int id, String name, BigDecimal price, int stock, LocalDate expiryDate, String category, String description) {
+    public Product(int id, String name, Money price, int stock, LocalDate expiryDate, String category, String description) {
         this.id = id;
         this.name = name;
         this.price = price;
@@ -34,6 +36,11 @@ public class Product {
         this.description = description;
     }
 
+    // Copy constructor
+    public Product(Product other) {
+        this(other.id, other.name, other.price, other.stock, other.expiryDate, other.category, other.description);
+    }
+
     // Getters and setters
     public int getId() { return id; }
     public void setId(int id) { this.id = id; }
@@ -41,8 +48,8 @@ public class Product {
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
 
-    public BigDecimal getPrice() { return price; }
-    public void setPrice(BigDecimal price) { this.price = price; }
+    public Money getPrice() { return price; }
+    public void setPrice(Money price) { this.price = price; }
 
     public int getStock() { return stock; }
     public void setStock(int stock) { this.stock = stock; }
@@ -81,9 +88,14 @@ public class Product {
         this.description = description;
     }
 
+    // True if a description was set, rather than generated by getDescription()
+    public boolean hasDescription() {
+        return description != null && !description.isEmpty();
+    }
+
     public boolean isExpiring() {
         if (expiryDate == null) return false;
-        return LocalDate.now().plusDays(30).isAfter(expiryDate);
+        return expiryDate.toEpochDay() < Today.epochDay() + Config.EXPIRY_WARNING_DAYS;
     }
 
     public boolean isLowStock() {
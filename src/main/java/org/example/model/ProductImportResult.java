@@ -0,0 +1,40 @@
+package org.example.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a bulk product import. Rows that could not be read or saved are skipped and
+ * reported by line number; everything else is imported.
+ */
+public class ProductImportResult {
+    // Only the first errors are kept, so a file that is wrong throughout can't exhaust memory
+    private static final int MAX_ERRORS_KEPT = 1000;
+
+    private long imported = 0;
+    private long failed = 0;
+    private final List<String> errors = new ArrayList<>();
+    private String message;
+
+    public void addImported(long count) {
+        imported += count;
+    }
+
+    public void addError(long line, String error) {
+        failed++;
+        if (errors.size() < MAX_ERRORS_KEPT) {
+            errors.add("Line " + line + ": " + error);
+        }
+    }
+
+    // A problem with the file as a whole, such as a missing header column
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public long getImported() { return imported; }
+    public long getFailed() { return failed; }
+    public List<String> getErrors() { return Collections.unmodifiableList(errors); }
+    public String getMessage() { return message; }
+}
@@ -0,0 +1,41 @@
+package org.example.model;
+
+public class ProductPerformance {
+    private int productId;
+    private String productName;
+    private String category;
+    private int quantitySold;
+    private Money revenue;
+    private double percentOfTotal;
+
+    public ProductPerformance() {}
+
+    public ProductPerformance(int productId, String productName, String category,
+                              int quantitySold, Money revenue, double percentOfTotal) {
+        this.productId = productId;
+        this.productName = productName;
+        this.category = category;
+        this.quantitySold = quantitySold;
+        this.revenue = revenue;
+        this.percentOfTotal = percentOfTotal;
+    }
+
+    // Getters and setters
+    public int getProductId() { return productId; }
+    public void setProductId(int productId) { this.productId = productId; }
+
+    public String getProductName() { return productName; }
+    public void setProductName(String productName) { this.productName = productName; }
+
+    public String getCategory() { return category; }
+    public void setCategory(String category) { this.category = category; }
+
+    public int getQuantitySold() { return quantitySold; }
+    public void setQuantitySold(int quantitySold) { this.quantitySold = quantitySold; }
+
+    public Money getRevenue() { return revenue; }
+    public void setRevenue(Money revenue) { this.revenue = revenue; }
+
+    public double getPercentOfTotal() { return percentOfTotal; }
+    public void setPercentOfTotal(double percentOfTotal) { this.percentOfTotal = percentOfTotal; }
+}
@@ -1,44 +1,61 @@
 package org.example.model;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Sale {
     private int id;
     private int userId;
-    private BigDecimal totalAmount;
+    private long totalCents;
     private LocalDateTime saleDate;
     private List<SaleItem> items;
+    private List<SaleItem> itemsView;
+    private Map<Integer, SaleItem> mergeLines; // productId -> the line repeat adds of that product go to
+    private long rawTotalCents; // Sum of line subtotals, kept up to date as lines change
+    private Money totalView;    // Last Money handed out for each total; dropped when it changes
+    private Money rawTotalView;
     private String paymentMethod;
-    private double discountAmount = 0.0;
+    private long discountCents = 0;
     private String discountType = "None";
+    private String journalId; // Set when the sale is recorded through the local sales journal
+    private boolean storedTotal; // Total was loaded with the sale and the cart has not changed since
 
     public static class SaleItem {
         private int productId;
         private String productName;
         private int quantity;
-        private BigDecimal unitPrice;
+        private Money unitPrice;
+        private long subtotalCents;
 
-        public SaleItem(int productId, String productName, int quantity, BigDecimal unitPrice) {
+        public SaleItem(int productId, String productName, int quantity, Money unitPrice) {
             this.productId = productId;
             this.productName = productName;
             this.quantity = quantity;
             this.unitPrice = unitPrice;
+            this.subtotalCents = Math.multiplyExact(unitPrice.getCents(), (long) quantity);
         }
 
         public int getProductId() { return productId; }
         public String getProductName() { return productName; }
         public int getQuantity() { return quantity; }
-        public void setQuantity(int quantity) { this.quantity = quantity; }
-        public BigDecimal getUnitPrice() { return unitPrice; }
-        public BigDecimal getSubtotal() { return unitPrice.multiply(BigDecimal.valueOf(quantity)); }
+        public Money getUnitPrice() { return unitPrice; }
+        public Money getSubtotal() { return Money.ofCents(subtotalCents); }
+
+        // Only through Sale.setItemQuantity, so the sale's running total stays in step
+        private void setQuantity(int quantity) {
+            this.quantity = quantity;
+            this.subtotalCents = Math.multiplyExact(unitPrice.getCents(), (long) quantity);
+        }
     }
 
     public Sale() {
         items = new ArrayList<>();
-        totalAmount = BigDecimal.ZERO;
+        itemsView = Collections.unmodifiableList(items);
+        mergeLines = new HashMap<>();
     }
 
     // Getters and setters
@@ -48,18 +65,33 @@ public class Sale {
     public int getUserId() { return userId; }
     public void setUserId(int userId) { this.userId = userId; }
 
-    public BigDecimal getTotalAmount() {
-        BigDecimal rawTotal = calculateRawTotal();
-        BigDecimal discountBD = BigDecimal.valueOf(discountAmount);
-        return rawTotal.subtract(discountBD).max(BigDecimal.ZERO);
+    public Money getTotalAmount() {
+        if (totalView == null) {
+            totalView = Money.ofCents(totalCents);
+        }
+        return totalView;
     }
 
-    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+    // Used when loading a stored sale, whose total may include a discount that is not stored
+    // with it. Lines loaded through addItem(SaleItem) keep it, before or after this call; it
+    // is replaced by the computed total on the next cart or discount change.
+    public void setTotalAmount(Money totalAmount) {
+        this.totalCents = totalAmount.getCents();
+        this.totalView = totalAmount;
+        this.storedTotal = true;
+    }
 
     public LocalDateTime getSaleDate() { return saleDate; }
     public void setSaleDate(LocalDateTime saleDate) { this.saleDate = saleDate; }
 
-    public List<SaleItem> getItems() { return items; }
+    /**
+     * Read-only view of the cart lines; change them through addItem, removeItem,
+     * setItemQuantity and clearItems so the totals stay consistent.
+     */
+    public List<SaleItem> getItems() { return itemsView; }
+
+    public String getJournalId() { return journalId; }
+    public void setJournalId(String journalId) { this.journalId = journalId; }
 
     public void setPaymentMethod(String paymentMethod) {
         this.paymentMethod = paymentMethod;
@@ -69,28 +101,109 @@ public class Sale {
         return paymentMethod;
     }
 
+    /**
+     * Adds the product to the cart, merging into the product's existing line if it has one.
+     */
     public void addItem(Product product, int quantity) {
+        addItem(product, quantity, true);
+    }
+
+    /**
+     * Adds the product to the cart.
+     *
+     * @param merge false to always start a separate line, e.g. for an item that is priced
+     *              or returned separately; the line is then never merged into either
+     */
+    public void addItem(Product product, int quantity, boolean merge) {
+        if (merge) {
+            SaleItem existing = mergeLines.get(product.getId());
+            // A price change mid-sale starts a new line rather than repricing the old one
+            if (existing != null && existing.getUnitPrice().equals(product.getPrice())) {
+                changeQuantity(existing, existing.getQuantity() + quantity);
+                return;
+            }
+        }
+
         SaleItem item = new SaleItem(
                 product.getId(),
                 product.getName(),
                 quantity,
                 product.getPrice()
         );
+        appendLine(item);
+        recalculateTotal();
+        if (merge) {
+            mergeLines.put(item.getProductId(), item);
+        }
+    }
+
+    /**
+     * Appends the line as-is, e.g. when loading a stored sale. Later adds of the same
+     * product merge into it if it is the product's first line. A total set with
+     * setTotalAmount is kept.
+     */
+    public void addItem(SaleItem item) {
+        appendLine(item);
+        if (storedTotal) {
+            rawTotalView = null;
+        } else {
+            recalculateTotal();
+        }
+        mergeLines.putIfAbsent(item.getProductId(), item);
+    }
+
+    /**
+     * Returns the line that further adds of this product would merge into, or null.
+     */
+    public SaleItem getItemForProduct(int productId) {
+        return mergeLines.get(productId);
+    }
+
+    private void appendLine(SaleItem item) {
         items.add(item);
+        rawTotalCents = Math.addExact(rawTotalCents, item.subtotalCents);
+    }
+
+    public SaleItem removeItem(int index) {
+        SaleItem item = items.remove(index);
+        mergeLines.remove(item.getProductId(), item);
+        rawTotalCents -= item.subtotalCents;
+        recalculateTotal();
+        return item;
+    }
+
+    public void setItemQuantity(int index, int quantity) {
+        changeQuantity(items.get(index), quantity);
+    }
+
+    private void changeQuantity(SaleItem item, int quantity) {
+        rawTotalCents -= item.subtotalCents;
+        item.setQuantity(quantity);
+        rawTotalCents = Math.addExact(rawTotalCents, item.subtotalCents);
+        recalculateTotal();
+    }
+
+    public void clearItems() {
+        items.clear();
+        mergeLines.clear();
+        rawTotalCents = 0;
         recalculateTotal();
     }
 
     private void recalculateTotal() {
-        totalAmount = calculateRawTotal().subtract(BigDecimal.valueOf(discountAmount)).max(BigDecimal.ZERO);
+        totalCents = Math.max(rawTotalCents - discountCents, 0);
+        storedTotal = false;
+        totalView = null;
+        rawTotalView = null;
     }
 
-    public void setDiscountAmount(double discountAmount) {
-        this.discountAmount = discountAmount;
+    public void setDiscountAmount(Money discountAmount) {
+        this.discountCents = discountAmount.getCents();
         recalculateTotal();
     }
 
-    public double getDiscountAmount() {
-        return discountAmount;
+    public Money getDiscountAmount() {
+        return Money.ofCents(discountCents);
     }
 
     public void setDiscountType(String discountType) {
@@ -101,11 +214,10 @@ public class Sale {
         return discountType;
     }
 
-    public BigDecimal calculateRawTotal() {
-        BigDecimal rawTotal = BigDecimal.ZERO;
-        for (SaleItem item : items) {
-            rawTotal = rawTotal.add(item.getSubtotal());
+    public Money calculateRawTotal() {
+        if (rawTotalView == null) {
+            rawTotalView = Money.ofCents(rawTotalCents);
         }
-        return rawTotal;
+        return rawTotalView;
     }
 }
\ No newline at end of file
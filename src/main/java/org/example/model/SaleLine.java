@@ -0,0 +1,40 @@
+package org.example.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * One line item of a recorded sale together with its sale's header fields, as read for
+ * line-level exports.
+ */
+public class SaleLine {
+    private final int saleId;
+    private final LocalDateTime saleDate;
+    private final int userId;
+    private final int productId;
+    private final String productName;
+    private final int quantity;
+    private final Money unitPrice;
+
+    public SaleLine(int saleId, LocalDateTime saleDate, int userId, int productId, String productName,
+                    int quantity, Money unitPrice) {
+        this.saleId = saleId;
+        this.saleDate = saleDate;
+        this.userId = userId;
+        this.productId = productId;
+        this.productName = productName;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+    }
+
+    public int getSaleId() { return saleId; }
+    public LocalDateTime getSaleDate() { return saleDate; }
+    public int getUserId() { return userId; }
+    public int getProductId() { return productId; }
+    public String getProductName() { return productName; }
+    public int getQuantity() { return quantity; }
+    public Money getUnitPrice() { return unitPrice; }
+
+    public Money getSubtotal() {
+        return unitPrice.times(quantity);
+    }
+}
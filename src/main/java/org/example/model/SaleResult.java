@@ -0,0 +1,64 @@
+package org.example.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of committing a sale. When stock runs out the sale is rolled back as a whole
+ * and {@link #getFailedItems()} lists the cart lines that could not be fulfilled. A sale
+ * replayed from the journal is recorded regardless, and {@link #getOversoldItems()} lists
+ * the lines it took below zero.
+ */
+public class SaleResult {
+    private final boolean success;
+    private final Sale sale;
+    private final List<Sale.SaleItem> failedItems;
+    private final String message;
+    private final boolean transientFailure;
+    private final List<Sale.SaleItem> oversoldItems;
+
+    private SaleResult(boolean success, Sale sale, List<Sale.SaleItem> failedItems, String message,
+                       boolean transientFailure, List<Sale.SaleItem> oversoldItems) {
+        this.success = success;
+        this.sale = sale;
+        this.failedItems = failedItems;
+        this.message = message;
+        this.transientFailure = transientFailure;
+        this.oversoldItems = oversoldItems;
+    }
+
+    public static SaleResult success(Sale sale) {
+        return new SaleResult(true, sale, Collections.emptyList(), "Sale completed", false, Collections.emptyList());
+    }
+
+    /**
+     * A sale recorded although some of its lines took their product's stock below zero.
+     */
+    public static SaleResult oversold(Sale sale, List<Sale.SaleItem> oversoldItems) {
+        return new SaleResult(true, sale, Collections.emptyList(), "Sale completed, stock oversold", false,
+                Collections.unmodifiableList(oversoldItems));
+    }
+
+    public static SaleResult insufficientStock(Sale sale, List<Sale.SaleItem> failedItems) {
+        return new SaleResult(false, sale, Collections.unmodifiableList(failedItems), "Not enough stock", false,
+                Collections.emptyList());
+    }
+
+    public static SaleResult error(Sale sale, String message) {
+        return new SaleResult(false, sale, Collections.emptyList(), message, false, Collections.emptyList());
+    }
+
+    /**
+     * A failure that may succeed if retried later, such as a lost connection or a deadlock.
+     */
+    public static SaleResult transientError(Sale sale, String message) {
+        return new SaleResult(false, sale, Collections.emptyList(), message, true, Collections.emptyList());
+    }
+
+    public boolean isSuccess() { return success; }
+    public Sale getSale() { return sale; }
+    public List<Sale.SaleItem> getFailedItems() { return failedItems; }
+    public String getMessage() { return message; }
+    public boolean isTransientFailure() { return transientFailure; }
+    public List<Sale.SaleItem> getOversoldItems() { return oversoldItems; }
+}
@@ -2,6 +2,7 @@ package org.example.service;
 
 import org.example.dao.UserDAO;
 import org.example.model.User;
+import org.example.util.Metrics;
 
 public class AuthService {
     private UserDAO userDAO;
@@ -12,12 +13,38 @@ public class AuthService {
     }
 
     public boolean login(String username, String password) {
-        User user = userDAO.authenticate(username, password);
-        if (user != null) {
-            currentUser = user;
-            return true;
-        }
-        return false;
+        return Metrics.time("AuthService.login", () -> {
+            User user = userDAO.authenticate(username, password);
+            if (user != null) {
+                currentUser = user;
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * True until the first account has been created; a fresh database has no users, so
+     * nobody could log in. A database that cannot be read counts as having users.
+     */
+    public boolean needsFirstAdministrator() {
+        return Metrics.time("AuthService.needsFirstAdministrator", () -> userDAO.countUsers() == 0);
+    }
+
+    /**
+     * Creates the first administrator account. Refused once any user exists.
+     */
+    public boolean createFirstAdministrator(String username, String password) {
+        return Metrics.time("AuthService.createFirstAdministrator", () -> {
+            if (userDAO.countUsers() != 0) {
+                return false;
+            }
+            User admin = new User();
+            admin.setUsername(username);
+            admin.setPassword(password);
+            admin.setRole("ADMIN");
+            return userDAO.createUser(admin);
+        });
     }
 
     public void logout() {
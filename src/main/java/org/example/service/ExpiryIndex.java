@@ -0,0 +1,106 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.example.util.Today;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Products with an expiry date, bucketed by expiry day (epoch day) in a sorted map.
+ *
+ * "Expired" and "expiring within N days" are range views of the map, so they cost
+ * O(log n + k) for k matching products instead of a scan of the catalog or the table.
+ * Kept in step with the catalog as a {@link ProductCatalog.Listener}.
+ */
+public class ExpiryIndex implements ProductCatalog.Listener {
+    private final NavigableMap<Long, Map<Integer, Product>> byDay = new TreeMap<>();
+    private final Map<Integer, Long> dayOfProduct = new HashMap<>();
+
+    @Override
+    public synchronized void catalogReloaded(Collection<Product> products) {
+        byDay.clear();
+        dayOfProduct.clear();
+        for (Product product : products) {
+            add(product);
+        }
+    }
+
+    @Override
+    public synchronized void productChanged(Product product) {
+        removeEntry(product.getId());
+        add(product);
+    }
+
+    @Override
+    public synchronized void productRemoved(int id) {
+        removeEntry(id);
+    }
+
+    /**
+     * Products that expired before today, longest-expired first.
+     */
+    public synchronized List<Product> getExpired() {
+        return collect(byDay.headMap(Today.epochDay(), false));
+    }
+
+    /**
+     * Products that have not expired yet but will within {@code days} days, soonest first.
+     * Products expiring today count as within 0 days.
+     */
+    public synchronized List<Product> getExpiringWithin(int days) {
+        long today = Today.epochDay();
+        return collect(byDay.subMap(today, true, today + days, true));
+    }
+
+    /**
+     * Products whose expiry date is before {@code today + days}, expired ones included; the
+     * set {@link Product#isExpiring()} describes for the configured warning window.
+     */
+    public synchronized List<Product> getExpiringBefore(int days) {
+        return collect(byDay.headMap(Today.epochDay() + days, false));
+    }
+
+    public synchronized int size() {
+        return dayOfProduct.size();
+    }
+
+    private void add(Product product) {
+        if (product.getExpiryDate() == null) {
+            return;
+        }
+        long day = product.getExpiryDate().toEpochDay();
+        byDay.computeIfAbsent(day, d -> new LinkedHashMap<>()).put(product.getId(), product);
+        dayOfProduct.put(product.getId(), day);
+    }
+
+    private void removeEntry(int id) {
+        Long day = dayOfProduct.remove(id);
+        if (day == null) {
+            return;
+        }
+        Map<Integer, Product> bucket = byDay.get(day);
+        if (bucket != null) {
+            bucket.remove(id);
+            if (bucket.isEmpty()) {
+                byDay.remove(day);
+            }
+        }
+    }
+
+    private static List<Product> collect(Map<Long, Map<Integer, Product>> days) {
+        List<Product> products = new ArrayList<>();
+        for (Map<Integer, Product> bucket : days.values()) {
+            for (Product product : bucket.values()) {
+                products.add(new Product(product));
+            }
+        }
+        return products;
+    }
+}
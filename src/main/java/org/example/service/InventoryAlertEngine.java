@@ -0,0 +1,169 @@
+package org.example.service;
+
+import org.example.model.Product;
+import org.example.util.Config;
+import org.example.util.Today;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the low-stock and expiring-soon alert sets up to date from catalog events.
+ *
+ * Every product change re-checks just that product and publishes only what changed, so
+ * alerts follow sales and restocks as they happen without querying the products table.
+ * Stock only changes through events, but "expiring soon" also changes with the date, so
+ * the expiring set is rebuilt from the {@link ExpiryIndex} once at each day rollover.
+ */
+public class InventoryAlertEngine implements ProductCatalog.Listener {
+
+    public enum AlertType { LOW_STOCK, EXPIRING }
+
+    /**
+     * Receives alert changes. Called on the thread that changed the catalog, or on the
+     * engine's rollover thread, so UI listeners must hand off to the EDT.
+     */
+    public interface Listener {
+        // The full set, sent on registration, after a catalog reload and at day rollover
+        void alertsReset(AlertType type, List<Product> products);
+        // The product entered the set, or is still in it with new details
+        void alertRaised(AlertType type, Product product);
+        void alertCleared(AlertType type, int productId);
+    }
+
+    private final Map<Integer, Product> lowStock = new TreeMap<>();
+    private final Map<Integer, Product> expiring = new TreeMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final ExpiryIndex expiryIndex;
+    private final Runnable rolloverListener = this::rollover;
+    private boolean started = false;
+
+    /**
+     * @param expiryIndex must be registered with the catalog ahead of this engine, so it is
+     *                    already up to date when the engine is notified
+     */
+    public InventoryAlertEngine(ExpiryIndex expiryIndex) {
+        this.expiryIndex = expiryIndex;
+    }
+
+    /**
+     * Registers the listener and immediately sends it the current alert sets.
+     */
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+        listener.alertsReset(AlertType.LOW_STOCK, snapshot(lowStock));
+        listener.alertsReset(AlertType.EXPIRING, snapshot(expiring));
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized List<Product> getLowStockProducts() {
+        return snapshot(lowStock);
+    }
+
+    public synchronized List<Product> getExpiringProducts() {
+        return snapshot(expiring);
+    }
+
+    /**
+     * Starts the day-rollover recheck.
+     */
+    public synchronized void start() {
+        if (!started) {
+            started = true;
+            Today.addRolloverListener(rolloverListener);
+        }
+    }
+
+    public synchronized void stop() {
+        if (started) {
+            started = false;
+            Today.removeRolloverListener(rolloverListener);
+        }
+    }
+
+    @Override
+    public synchronized void catalogReloaded(Collection<Product> products) {
+        lowStock.clear();
+        for (Product product : products) {
+            if (product.isLowStock()) {
+                lowStock.put(product.getId(), product);
+            }
+        }
+        publishReset(AlertType.LOW_STOCK, lowStock);
+        loadExpiring();
+    }
+
+    @Override
+    public synchronized void productChanged(Product product) {
+        update(AlertType.LOW_STOCK, lowStock, product, product.isLowStock());
+        update(AlertType.EXPIRING, expiring, product, product.isExpiring());
+    }
+
+    @Override
+    public synchronized void productRemoved(int id) {
+        if (lowStock.remove(id) != null) {
+            for (Listener listener : listeners) {
+                listener.alertCleared(AlertType.LOW_STOCK, id);
+            }
+        }
+        if (expiring.remove(id) != null) {
+            for (Listener listener : listeners) {
+                listener.alertCleared(AlertType.EXPIRING, id);
+            }
+        }
+    }
+
+    private void update(AlertType type, Map<Integer, Product> alerts, Product product, boolean alerting) {
+        if (alerting) {
+            Product previous = alerts.put(product.getId(), product);
+            // Re-publish while in the set only if something shown in the alert changed
+            if (previous == null || previous.getStock() != product.getStock()
+                    || !Objects.equals(previous.getName(), product.getName())
+                    || !Objects.equals(previous.getExpiryDate(), product.getExpiryDate())) {
+                for (Listener listener : listeners) {
+                    listener.alertRaised(type, new Product(product));
+                }
+            }
+        } else if (alerts.remove(product.getId()) != null) {
+            for (Listener listener : listeners) {
+                listener.alertCleared(type, product.getId());
+            }
+        }
+    }
+
+    // Products only start expiring as days pass, so the date change is the one full recheck
+    private synchronized void rollover() {
+        loadExpiring();
+    }
+
+    private void loadExpiring() {
+        expiring.clear();
+        for (Product product : expiryIndex.getExpiringBefore(Config.EXPIRY_WARNING_DAYS)) {
+            expiring.put(product.getId(), product);
+        }
+        publishReset(AlertType.EXPIRING, expiring);
+    }
+
+    private void publishReset(AlertType type, Map<Integer, Product> alerts) {
+        List<Product> products = snapshot(alerts);
+        for (Listener listener : listeners) {
+            listener.alertsReset(type, products);
+        }
+    }
+
+    private static List<Product> snapshot(Map<Integer, Product> alerts) {
+        List<Product> products = new ArrayList<>(alerts.size());
+        for (Product product : alerts.values()) {
+            products.add(new Product(product));
+        }
+        return products;
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.service;
+
+import org.example.dao.ProductDAO;
+import org.example.model.Product;
+import org.example.util.Config;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory, id-indexed copy of the products table shared by every ProductService.
+ *
+ * The catalog is loaded from the database on first use and kept coherent by
+ * write-through updates, so catalog reads on the checkout path never hit MySQL.
+ * Cached products are never mutated in place; callers always receive copies. A reload
+ * builds a new map and swaps it in whole, so readers never see a half-filled catalog, and
+ * a reload that fails keeps the products already loaded. While the database is down,
+ * reads retry the first load at most once every {@link Config#PRODUCT_CATALOG_RETRY_MS}.
+ */
+public class ProductCatalog {
+    private final ProductDAO productDAO;
+    private volatile ConcurrentSkipListMap<Integer, Product> products = new ConcurrentSkipListMap<>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private volatile boolean loaded = false;
+    private volatile long nextLoadAttempt = 0;
+
+    /**
+     * Notified after the catalog changes. Products passed to listeners are the cached
+     * instances and must not be modified.
+     */
+    public interface Listener {
+        void catalogReloaded(Collection<Product> products);
+        void productChanged(Product product);
+        void productRemoved(int id);
+    }
+
+    public ProductCatalog(ProductDAO productDAO) {
+        this.productDAO = productDAO;
+    }
+
+    public List<Product> getAll() {
+        ensureLoaded();
+        ConcurrentSkipListMap<Integer, Product> current = products;
+        List<Product> copies = new ArrayList<>();
+        for (Product product : current.values()) {
+            copies.add(new Product(product));
+        }
+        return copies;
+    }
+
+    public Product get(int id) {
+        ensureLoaded();
+        Product product = products.get(id);
+        return product != null ? new Product(product) : null;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public List<String> getCategories() {
+        ensureLoaded();
+        TreeSet<String> categories = new TreeSet<>();
+        for (Product product : products.values()) {
+            if (product.getCategory() != null && !product.getCategory().isEmpty()) {
+                categories.add(product.getCategory());
+            }
+        }
+        return new ArrayList<>(categories);
+    }
+
+    public int size() {
+        ensureLoaded();
+        return products.size();
+    }
+
+    /**
+     * Reloads the products from the database, picking up changes made by other tills.
+     *
+     * @return false if the products could not be read; the catalog keeps its current contents
+     */
+    public synchronized boolean reload() {
+        List<Product> fresh = productDAO.getAllProducts();
+        if (fresh == null) {
+            return false;
+        }
+
+        ConcurrentSkipListMap<Integer, Product> loadedProducts = new ConcurrentSkipListMap<>();
+        for (Product product : fresh) {
+            loadedProducts.put(product.getId(), product);
+        }
+        products = loadedProducts;
+        loaded = true;
+
+        Collection<Product> snapshot = Collections.unmodifiableCollection(loadedProducts.values());
+        for (Listener listener : listeners) {
+            listener.catalogReloaded(snapshot);
+        }
+        return true;
+    }
+
+    // Write-through updates, called after the database write has succeeded
+
+    public synchronized void put(Product product) {
+        if (loaded) {
+            Product cached = new Product(product);
+            products.put(cached.getId(), cached);
+            for (Listener listener : listeners) {
+                listener.productChanged(cached);
+            }
+        }
+    }
+
+    public synchronized void remove(int id) {
+        if (loaded && products.remove(id) != null) {
+            for (Listener listener : listeners) {
+                listener.productRemoved(id);
+            }
+        }
+    }
+
+    public synchronized void adjustStock(int id, int delta) {
+        Product current = products.get(id);
+        if (current != null) {
+            Product updated = new Product(current);
+            updated.setStock(current.getStock() + delta);
+            products.put(id, updated);
+            for (Listener listener : listeners) {
+                listener.productChanged(updated);
+            }
+        }
+    }
+
+    private void ensureLoaded() {
+        if (!loaded && System.currentTimeMillis() >= nextLoadAttempt) {
+            synchronized (this) {
+                if (!loaded && System.currentTimeMillis() >= nextLoadAttempt && !reload()) {
+                    nextLoadAttempt = System.currentTimeMillis() + Config.PRODUCT_CATALOG_RETRY_MS;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package org.example.service;
+
+import org.example.model.Product;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over product name, category and description for search-as-you-type.
+ *
+ * Kept up to date incrementally as a {@link ProductCatalog.Listener}. Queries of three or
+ * more characters intersect the posting lists of their trigrams and only verify the
+ * surviving candidates. Shorter queries, the first keystrokes of every search, match the
+ * start of the name or of a word in it, and are answered from prefix lists kept in
+ * best-first order, so they read only the products they return.
+ */
+public class ProductSearchIndex implements ProductCatalog.Listener {
+    private static final int GRAM = 3;
+
+    // Order of each prefix list: shortest name, then name, then id. Short queries list the
+    // name-prefix matches before the word-prefix ones, each in this order
+    private static final Comparator<Doc> PREFIX_ORDER = Comparator
+            .comparingInt((Doc d) -> d.name.length())
+            .thenComparing(d -> d.name)
+            .thenComparingInt(d -> d.product.getId());
+
+    private static final Comparator<Hit> BEST_FIRST = Comparator
+            .comparingInt((Hit h) -> h.rank)
+            .thenComparingInt(h -> h.doc.name.length())
+            .thenComparing(h -> h.doc.name);
+
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private final Map<String, Set<Integer>> postings = new HashMap<>();
+    // One- and two-character prefixes of the name, and of the other words in it, in PREFIX_ORDER
+    private final Map<String, TreeSet<Doc>> namePrefixes = new HashMap<>();
+    private final Map<String, TreeSet<Doc>> wordPrefixes = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Override
+    public void catalogReloaded(Collection<Product> products) {
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            postings.clear();
+            namePrefixes.clear();
+            wordPrefixes.clear();
+            for (Product product : products) {
+                add(product);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void productChanged(Product product) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(product.getId());
+            add(product);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void productRemoved(int id) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns up to {@code limit} products matching the query, best matches first.
+     */
+    public List<Product> search(String query, int limit) {
+        String q = query == null ? "" : query.trim().toLowerCase(Locale.ROOT);
+        if (q.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        if (q.length() < GRAM) {
+            return searchPrefix(q, limit);
+        }
+
+        // Worst hit kept at the head so it can be replaced by a better one
+        PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+
+        String wordStart = " " + q;
+
+        lock.readLock().lock();
+        try {
+            for (Doc doc : candidates(q)) {
+                if (!doc.text.contains(q)) {
+                    continue;
+                }
+                int rank = rank(doc, q, wordStart);
+                if (top.size() == limit && !isBetter(rank, doc, top.peek())) {
+                    continue; // Can't make the top N, skip the allocation
+                }
+                top.offer(new Hit(doc, rank));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<Hit> hits = new ArrayList<>(top);
+        hits.sort(BEST_FIRST);
+        List<Product> results = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            results.add(new Product(hit.doc.product));
+        }
+        return results;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Name prefix matches first, then word prefix matches, each list already in BEST_FIRST order
+    private List<Product> searchPrefix(String q, int limit) {
+        List<Product> results = new ArrayList<>(Math.min(limit, 16));
+        lock.readLock().lock();
+        try {
+            TreeSet<Doc> nameMatches = namePrefixes.get(q);
+            if (nameMatches != null) {
+                for (Doc doc : nameMatches) {
+                    if (results.size() == limit) {
+                        return results;
+                    }
+                    results.add(new Product(doc.product));
+                }
+            }
+            TreeSet<Doc> wordMatches = wordPrefixes.get(q);
+            if (wordMatches != null) {
+                for (Doc doc : wordMatches) {
+                    if (results.size() == limit) {
+                        break;
+                    }
+                    if (!doc.name.startsWith(q)) { // Already listed as a name match
+                        results.add(new Product(doc.product));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return results;
+    }
+
+    private Collection<Doc> candidates(String q) {
+        List<Set<Integer>> lists = new ArrayList<>();
+        for (String gram : grams(q)) {
+            Set<Integer> ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptyList();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        List<Doc> result = new ArrayList<>();
+        Set<Integer> smallest = lists.get(0);
+        outer:
+        for (Integer id : smallest) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) {
+                    continue outer;
+                }
+            }
+            result.add(docs.get(id));
+        }
+        return result;
+    }
+
+    private int rank(Doc doc, String q, String wordStart) {
+        if (doc.name.startsWith(q)) return 0;
+        if (doc.name.contains(wordStart)) return 1;
+        if (doc.name.contains(q)) return 2;
+        return 3;
+    }
+
+    private boolean isBetter(int rank, Doc doc, Hit worst) {
+        if (rank != worst.rank) return rank < worst.rank;
+        if (doc.name.length() != worst.doc.name.length()) return doc.name.length() < worst.doc.name.length();
+        return doc.name.compareTo(worst.doc.name) < 0;
+    }
+
+    private void add(Product product) {
+        Doc doc = new Doc(product);
+        docs.put(product.getId(), doc);
+        for (String gram : grams(doc.text)) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(product.getId());
+        }
+        for (String prefix : prefixes(doc.name, 0)) {
+            namePrefixes.computeIfAbsent(prefix, p -> new TreeSet<>(PREFIX_ORDER)).add(doc);
+        }
+        for (String prefix : wordPrefixes(doc.name)) {
+            wordPrefixes.computeIfAbsent(prefix, p -> new TreeSet<>(PREFIX_ORDER)).add(doc);
+        }
+    }
+
+    private void removeDoc(int id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        for (String gram : grams(doc.text)) {
+            Set<Integer> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+        for (String prefix : prefixes(doc.name, 0)) {
+            removePrefix(namePrefixes, prefix, doc);
+        }
+        for (String prefix : wordPrefixes(doc.name)) {
+            removePrefix(wordPrefixes, prefix, doc);
+        }
+    }
+
+    private static void removePrefix(Map<String, TreeSet<Doc>> index, String prefix, Doc doc) {
+        TreeSet<Doc> prefixDocs = index.get(prefix);
+        if (prefixDocs != null) {
+            prefixDocs.remove(doc);
+            if (prefixDocs.isEmpty()) {
+                index.remove(prefix);
+            }
+        }
+    }
+
+    // The one- and two-character prefixes of the word starting at the offset
+    private static List<String> prefixes(String text, int offset) {
+        List<String> prefixes = new ArrayList<>(GRAM - 1);
+        for (int length = 1; length < GRAM && offset + length <= text.length(); length++) {
+            prefixes.add(text.substring(offset, offset + length));
+        }
+        return prefixes;
+    }
+
+    // Prefixes of the words after the first; a word starts after a space, as in rank()
+    private static Set<String> wordPrefixes(String name) {
+        Set<String> prefixes = new HashSet<>();
+        for (int i = name.indexOf(' '); i >= 0; i = name.indexOf(' ', i + 1)) {
+            prefixes.addAll(prefixes(name, i + 1));
+        }
+        return prefixes;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    private static class Doc {
+        final Product product;
+        final String name;
+        final String text;
+
+        Doc(Product product) {
+            this.product = product;
+            this.name = product.getName() != null ? product.getName().toLowerCase(Locale.ROOT) : "";
+            StringBuilder sb = new StringBuilder(name);
+            if (product.getCategory() != null) {
+                sb.append('\n').append(product.getCategory().toLowerCase(Locale.ROOT));
+            }
+            // Only a stored description; the generated one repeats the name and category and
+            // adds stock and expiry flags that would make "low" or "soon" match
+            if (product.hasDescription()) {
+                sb.append('\n').append(product.getDescription().toLowerCase(Locale.ROOT));
+            }
+            this.text = sb.toString();
+        }
+    }
+
+    private static class Hit {
+        final Doc doc;
+        final int rank;
+
+        Hit(Doc doc, int rank) {
+            this.doc = doc;
+            this.rank = rank;
+        }
+    }
+}
@@ -1,13 +1,47 @@
 package org.example.service;
 
 import org.example.dao.ProductDAO;
+import org.example.model.Money;
 import org.example.model.Product;
+import org.example.model.ProductImportResult;
+import org.example.model.Sale;
+import org.example.util.Config;
+import org.example.util.CsvReader;
+import org.example.util.CsvWriter;
+import org.example.util.Metrics;
 
-import java.math.BigDecimal;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.LongConsumer;
 
 public class ProductService {
+    // Shared by every panel and service so the catalog is loaded only once
+    private static final ProductCatalog catalog = new ProductCatalog(new ProductDAO());
+    private static final ProductSearchIndex searchIndex = new ProductSearchIndex();
+    private static final ExpiryIndex expiryIndex = new ExpiryIndex();
+    private static final InventoryAlertEngine alertEngine = new InventoryAlertEngine(expiryIndex);
+
+    static {
+        catalog.addListener(searchIndex);
+        catalog.addListener(expiryIndex); // Before the alert engine, which reads it
+        catalog.addListener(alertEngine);
+    }
+
+    // For caches elsewhere in the service layer that depend on product details
+    static void addCatalogListener(ProductCatalog.Listener listener) {
+        catalog.addListener(listener);
+    }
+
+    static {
+        Metrics.gauge("pos_catalog_products", "Products in the in-memory catalog", searchIndex::size);
+    }
+
     private ProductDAO productDAO;
 
     public ProductService() {
@@ -15,48 +49,401 @@ public class ProductService {
     }
 
     public List<Product> getAllProducts() {
-        return productDAO.getAllProducts();
+        return Metrics.time("ProductService.getAllProducts", () -> catalog.getAll());
     }
 
     public Product getProductById(int id) {
-        return productDAO.getProductById(id);
+        return Metrics.time("ProductService.getProductById", () -> catalog.get(id));
     }
 
-    public boolean createProduct(String name, BigDecimal price, int stock, LocalDate expiryDate, String category) {
-        Product product = new Product();
-        product.setName(name);
-        product.setPrice(price);
-        product.setStock(stock);
-        product.setExpiryDate(expiryDate);
-        product.setCategory(category);
+    public int getProductCount() {
+        return Metrics.time("ProductService.getProductCount", () -> productDAO.countProducts());
+    }
 
-        return productDAO.createProduct(product);
+    /**
+     * Reads one window of products straight from the database, by position.
+     *
+     * @return the products, or null if the database could not be read
+     */
+    public List<Product> getProductPage(ProductDAO.SortKey sort, int offset, int limit) {
+        return Metrics.time("ProductService.getProductPage", () -> productDAO.getProductsPage(sort, offset, limit));
     }
 
-    public boolean updateProduct(int id, String name, BigDecimal price, int stock, LocalDate expiryDate, String category) {
-        Product product = productDAO.getProductById(id);
-        if (product == null) {
+    /**
+     * Reads the page of products that follows {@code after} (null for the first page),
+     * seeking by key rather than position.
+     *
+     * @return the products, or null if the database could not be read
+     */
+    public List<Product> getProductsAfter(ProductDAO.SortKey sort, Product after, int limit) {
+        return Metrics.time("ProductService.getProductsAfter",
+                () -> productDAO.getProductsAfter(sort, after, limit, ProductDAO.ALL_COLUMNS));
+    }
+
+    /**
+     * Searches product name, category and description, returning at most {@code limit}
+     * products ranked by how well the name matches.
+     */
+    public List<Product> searchProducts(String query, int limit) {
+        return Metrics.time("ProductService.searchProducts", () -> {
+            catalog.size(); // Make sure the catalog, and with it the index, has been loaded
+            return searchIndex.search(query, limit);
+        });
+    }
+
+    public List<String> getCategories() {
+        return Metrics.time("ProductService.getCategories", () -> catalog.getCategories());
+    }
+
+    /**
+     * @return false if the database could not be read; the cached products are kept
+     */
+    public boolean reloadCatalog() {
+        return Metrics.time("ProductService.reloadCatalog", () -> catalog.reload());
+    }
+
+    public boolean createProduct(String name, Money price, int stock, LocalDate expiryDate, String category) {
+        return Metrics.time("ProductService.createProduct", () -> {
+            Product product = new Product();
+            product.setName(name);
+            product.setPrice(price);
+            product.setStock(stock);
+            product.setExpiryDate(expiryDate);
+            product.setCategory(category);
+
+            if (productDAO.createProduct(product)) {
+                catalog.put(product);
+                return true;
+            }
             return false;
-        }
+        });
+    }
 
-        product.setName(name);
-        product.setPrice(price);
-        product.setStock(stock);
-        product.setExpiryDate(expiryDate);
-        product.setCategory(category);
+    public boolean updateProduct(int id, String name, Money price, int stock, LocalDate expiryDate, String category) {
+        return Metrics.time("ProductService.updateProduct", () -> {
+            // Not every product is in the catalog, e.g. while it could not be loaded
+            Product product = catalog.get(id);
+            if (product == null) {
+                product = productDAO.getProductById(id);
+            }
+            if (product == null) {
+                return false;
+            }
 
-        return productDAO.updateProduct(product);
+            product.setName(name);
+            product.setPrice(price);
+            product.setStock(stock);
+            product.setExpiryDate(expiryDate);
+            product.setCategory(category);
+
+            if (productDAO.updateProduct(product)) {
+                catalog.put(product);
+                return true;
+            }
+            return false;
+        });
     }
 
     public boolean deleteProduct(int id) {
-        return productDAO.deleteProduct(id);
+        return Metrics.time("ProductService.deleteProduct", () -> {
+            if (productDAO.deleteProduct(id)) {
+                catalog.remove(id);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Imports products from a CSV file with a header row naming the columns {@code name},
+     * {@code price}, {@code stock}, {@code expiry_date} and {@code category} in any order;
+     * only name and price are required and other columns, such as an exported {@code id},
+     * are ignored. Every row becomes a new product.
+     *
+     * The file is streamed and inserted in batches of
+     * {@link Config#PRODUCT_IMPORT_BATCH_SIZE} rows, each batch in its own transaction. If a
+     * batch fails, its rows are retried one at a time so that only the bad rows are
+     * skipped. The catalog is reloaded once at the end.
+     *
+     * @param progress called after each batch with the number of rows read so far; may be null
+     */
+    public ProductImportResult importProducts(Path file, LongConsumer progress) {
+        return Metrics.time("ProductService.importProducts", () -> {
+            ProductImportResult result = new ProductImportResult();
+            ImportBatch batch = new ImportBatch(result, progress);
+
+            try {
+                CsvReader.read(file, (line, fields) -> {
+                    if (!batch.headerRead) {
+                        return batch.readHeader(fields);
+                    }
+                    batch.addRow(line, fields);
+                    return true;
+                });
+                batch.flush();
+            } catch (IOException e) {
+                System.err.println("Error reading import file: " + e.getMessage());
+                result.setMessage("Could not read " + file.getFileName() + ": " + e.getMessage());
+            }
+
+            if (result.getImported() > 0) {
+                catalog.reload();
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Writes every product to a CSV file in id order, in the format read by
+     * {@link #importProducts}. Products are read from the database a page at a time, so
+     * memory use does not grow with the catalog.
+     *
+     * @param progress called after each page with the number of products written; may be null
+     * @return the number of products written, or -1 if the export failed; a failed export deletes its partial file
+     */
+    public long exportProducts(Path file, LongConsumer progress) {
+        return Metrics.time("ProductService.exportProducts", () -> {
+            long written = 0;
+            boolean complete = false;
+            try (CsvWriter writer = new CsvWriter(file)) {
+                writer.writeRow("id", "name", "price", "stock", "expiry_date", "category");
+
+                int lastId = 0;
+                List<Product> page;
+                do {
+                    page = productDAO.getProductsAfterId(lastId, Config.PRODUCT_EXPORT_PAGE_SIZE);
+                    if (page == null) {
+                        break;
+                    }
+                    for (Product product : page) {
+                        writer.field(product.getId())
+                                .field(product.getName())
+                                .field(product.getPrice())
+                                .field(product.getStock())
+                                .field(product.getExpiryDate())
+                                .field(product.getCategory())
+                                .endRow();
+                        lastId = product.getId();
+                    }
+                    written += page.size();
+                    if (progress != null) {
+                        progress.accept(written);
+                    }
+                } while (page.size() == Config.PRODUCT_EXPORT_PAGE_SIZE);
+                complete = page != null;
+            } catch (IOException e) {
+                System.err.println("Error exporting products: " + e.getMessage());
+            }
+
+            if (!complete) {
+                // Don't leave a truncated file that looks like a full export
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    System.err.println("Error removing incomplete export: " + e.getMessage());
+                }
+                return -1L;
+            }
+            return written;
+        });
+    }
+
+    /**
+     * Re-reads one product from the database into the catalog, e.g. after another till
+     * changed its stock.
+     */
+    public void refreshProduct(int id) {
+        Metrics.time("ProductService.refreshProduct", () -> {
+            Product product = productDAO.getProductById(id);
+            if (product != null) {
+                catalog.put(product);
+            } else {
+                catalog.remove(id);
+            }
+        });
+    }
+
+    /**
+     * Applies the stock decrements of a committed sale to the cached catalog.
+     */
+    public void applySale(Sale sale) {
+        Metrics.time("ProductService.applySale", () -> {
+            for (Sale.SaleItem item : sale.getItems()) {
+                catalog.adjustStock(item.getProductId(), -item.getQuantity());
+            }
+        });
+    }
+
+    /**
+     * Loads the catalog, and with it the alert sets, and starts the day-rollover recheck.
+     */
+    public static void startAlertEngine() {
+        catalog.size();
+        alertEngine.start();
+    }
+
+    public static void stopAlertEngine() {
+        alertEngine.stop();
+    }
+
+    /**
+     * Subscribes to low-stock and expiry alert changes; the current alerts are sent at once.
+     */
+    public void addAlertListener(InventoryAlertEngine.Listener listener) {
+        catalog.size();
+        alertEngine.addListener(listener);
+    }
+
+    public void removeAlertListener(InventoryAlertEngine.Listener listener) {
+        alertEngine.removeListener(listener);
     }
 
     public List<Product> getExpiringProducts() {
-        return productDAO.getExpiringProducts();
+        return Metrics.time("ProductService.getExpiringProducts", () -> {
+            catalog.size();
+            return alertEngine.getExpiringProducts();
+        });
+    }
+
+    /**
+     * Products that have not expired yet but will within the given number of days.
+     */
+    public List<Product> getExpiringWithin(int days) {
+        return Metrics.time("ProductService.getExpiringWithin", () -> {
+            catalog.size();
+            return expiryIndex.getExpiringWithin(days);
+        });
+    }
+
+    public List<Product> getExpiredProducts() {
+        return Metrics.time("ProductService.getExpiredProducts", () -> {
+            catalog.size();
+            return expiryIndex.getExpired();
+        });
     }
 
     public List<Product> getLowStockProducts() {
-        return productDAO.getLowStockProducts();
+        return Metrics.time("ProductService.getLowStockProducts", () -> {
+            catalog.size();
+            return alertEngine.getLowStockProducts();
+        });
+    }
+
+    /**
+     * Collects parsed import rows and writes them a batch at a time.
+     */
+    private class ImportBatch {
+        private final ProductImportResult result;
+        private final LongConsumer progress;
+        private final List<Product> products = new ArrayList<>(Config.PRODUCT_IMPORT_BATCH_SIZE);
+        private final List<Long> lines = new ArrayList<>(Config.PRODUCT_IMPORT_BATCH_SIZE);
+        private long rowsRead = 0;
+
+        private boolean headerRead = false;
+        // Field index of each column, -1 when the file does not have it
+        private int name, price, stock, expiryDate, category;
+
+        ImportBatch(ProductImportResult result, LongConsumer progress) {
+            this.result = result;
+            this.progress = progress;
+        }
+
+        boolean readHeader(List<String> fields) {
+            headerRead = true;
+            name = price = stock = expiryDate = category = -1;
+            for (int i = 0; i < fields.size(); i++) {
+                switch (fields.get(i).trim().toLowerCase(Locale.ROOT)) {
+                    case "name": name = i; break;
+                    case "price": price = i; break;
+                    case "stock": stock = i; break;
+                    case "expiry_date": expiryDate = i; break;
+                    case "category": category = i; break;
+                    default: break;
+                }
+            }
+            if (name < 0 || price < 0) {
+                result.setMessage("The header row must name at least the name and price columns");
+                return false;
+            }
+            return true;
+        }
+
+        void addRow(long line, List<String> fields) {
+            rowsRead++;
+            try {
+                Product product = new Product();
+
+                String productName = field(fields, name);
+                if (productName == null) {
+                    throw new IllegalArgumentException("name is empty");
+                }
+                product.setName(productName);
+
+                String priceText = field(fields, price);
+                if (priceText == null) {
+                    throw new IllegalArgumentException("price is empty");
+                }
+                Money productPrice = Money.parse(priceText);
+                if (productPrice.isNegative()) {
+                    throw new IllegalArgumentException("price is negative");
+                }
+                product.setPrice(productPrice);
+
+                String stockText = field(fields, stock);
+                int productStock = stockText != null ? Integer.parseInt(stockText) : 0;
+                if (productStock < 0) {
+                    throw new IllegalArgumentException("stock is negative");
+                }
+                product.setStock(productStock);
+
+                String expiryText = field(fields, expiryDate);
+                product.setExpiryDate(expiryText != null ? LocalDate.parse(expiryText) : null);
+                product.setCategory(field(fields, category));
+
+                products.add(product);
+                lines.add(line);
+            } catch (NumberFormatException e) {
+                result.addError(line, "invalid number");
+            } catch (DateTimeParseException e) {
+                result.addError(line, "invalid expiry date, use YYYY-MM-DD");
+            } catch (IllegalArgumentException e) {
+                result.addError(line, e.getMessage());
+            }
+
+            if (products.size() == Config.PRODUCT_IMPORT_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (!products.isEmpty()) {
+                if (productDAO.createProducts(products)) {
+                    result.addImported(products.size());
+                } else {
+                    // Find the offending rows; the good ones are inserted on their own
+                    for (int i = 0; i < products.size(); i++) {
+                        if (productDAO.createProduct(products.get(i))) {
+                            result.addImported(1);
+                        } else {
+                            result.addError(lines.get(i), "could not be saved");
+                        }
+                    }
+                }
+                products.clear();
+                lines.clear();
+            }
+            if (progress != null) {
+                progress.accept(rowsRead);
+            }
+        }
+
+        // The trimmed field, or null if the column is missing or blank
+        private String field(List<String> fields, int index) {
+            if (index < 0 || index >= fields.size()) {
+                return null;
+            }
+            String value = fields.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,252 @@
+package org.example.service;
+
+import org.example.model.DailySalesSummary;
+import org.example.model.Money;
+import org.example.model.Product;
+import org.example.model.ProductPerformance;
+import org.example.util.Config;
+import org.example.util.Today;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Caches report aggregates: daily rollup rows by day, and per-product totals by report
+ * partition and category filter.
+ *
+ * Any entry is dropped as soon as this till records a sale on one of its days, including a
+ * sale replayed late from the journal. Sales recorded by other tills are only picked up on
+ * expiry: entries that include today or later expire after
+ * {@link Config#REPORT_CACHE_OPEN_DAY_TTL_MS}, and entries for past days, which change only
+ * when another till replays its journal late, after {@link Config#REPORT_CACHE_CLOSED_DAY_TTL_MS}.
+ *
+ * Both caches evict the least recently used entries: at most {@link Config#REPORT_CACHE_MAX_DAYS}
+ * days are kept, and partitions are kept up to {@link Config#REPORT_CACHE_MAX_PRODUCT_TOTALS}
+ * product rows in total, since a partition costs one row per product sold in it.
+ *
+ * Product totals carry product names and categories, so they are dropped when a product is
+ * renamed, recategorised or removed, or the catalog is reloaded.
+ */
+public class ReportCache implements ProductCatalog.Listener {
+
+    private static class Entry<T> {
+        final T value;
+        final long expiresAt;
+
+        Entry(T value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isValid(long now) {
+            return now < expiresAt;
+        }
+    }
+
+    private static class PartitionKey {
+        final LocalDateTime start;
+        final LocalDateTime end;
+        final String category;
+
+        PartitionKey(LocalDateTime start, LocalDateTime end, String category) {
+            this.start = start;
+            this.end = end;
+            this.category = category;
+        }
+
+        boolean contains(LocalDateTime time) {
+            return !time.isBefore(start) && !time.isAfter(end);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof PartitionKey)) {
+                return false;
+            }
+            PartitionKey other = (PartitionKey) o;
+            return start.equals(other.start) && end.equals(other.end) && Objects.equals(category, other.category);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(start, end, category);
+        }
+    }
+
+    // A day with no rollup row; cached so quiet days are not queried again
+    private static final DailySalesSummary NO_SALES = new DailySalesSummary(null, Money.ZERO, 0, 0);
+
+    private final Map<LocalDate, Entry<DailySalesSummary>> days =
+            new LinkedHashMap<LocalDate, Entry<DailySalesSummary>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<LocalDate, Entry<DailySalesSummary>> eldest) {
+                    return size() > Config.REPORT_CACHE_MAX_DAYS;
+                }
+            };
+    // In access order; evicted from the eldest by the number of product rows held
+    private final Map<PartitionKey, Entry<Map<Integer, ProductPerformance>>> productTotals =
+            new LinkedHashMap<>(16, 0.75f, true);
+    private long productTotalsSize = 0;
+    // Name and category of every product that appears in cached totals
+    private final Map<Integer, String> labels = new HashMap<>();
+    // Bumped on every invalidation; results computed across a bump are not stored
+    private long version = 0;
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns the cached rollup for the day, a summary with a sale count of zero if the day
+     * is known to have no sales, or null if the day is not cached.
+     */
+    public synchronized DailySalesSummary getDay(LocalDate day) {
+        Entry<DailySalesSummary> entry = days.get(day);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.isValid(System.currentTimeMillis())) {
+            days.remove(day);
+            return null;
+        }
+        DailySalesSummary summary = entry.value;
+        return new DailySalesSummary(day, summary.getTotalSales(), summary.getItemCount(), summary.getSaleCount());
+    }
+
+    /**
+     * Stores the rollup read for a span of days; days of the span missing from
+     * {@code summaries} had no sales.
+     *
+     * @param readVersion the version read before querying
+     */
+    public synchronized void putDays(LocalDate from, LocalDate to, Map<LocalDate, DailySalesSummary> summaries,
+                                     long readVersion) {
+        if (readVersion != version) {
+            return;
+        }
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            DailySalesSummary summary = summaries.get(day);
+            days.put(day, new Entry<>(summary != null ? summary : NO_SALES, expiryFor(day)));
+        }
+    }
+
+    /**
+     * Returns the cached per-product totals of the partition, keyed by product id, or null.
+     * The map and its values are shared and must not be modified.
+     */
+    public synchronized Map<Integer, ProductPerformance> getProductTotals(LocalDateTime start, LocalDateTime end,
+                                                                          String category) {
+        PartitionKey key = new PartitionKey(start, end, category);
+        Entry<Map<Integer, ProductPerformance>> entry = productTotals.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.isValid(System.currentTimeMillis())) {
+            removeProductTotals(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    /**
+     * @param readVersion the version read before querying
+     */
+    public synchronized void putProductTotals(LocalDateTime start, LocalDateTime end, String category,
+                                              Map<Integer, ProductPerformance> totals, long readVersion) {
+        if (readVersion != version) {
+            return;
+        }
+        for (ProductPerformance performance : totals.values()) {
+            labels.put(performance.getProductId(), label(performance.getProductName(), performance.getCategory()));
+        }
+        if (totals.size() > Config.REPORT_CACHE_MAX_PRODUCT_TOTALS) {
+            return;
+        }
+        PartitionKey key = new PartitionKey(start, end, category);
+        removeProductTotals(key);
+        productTotals.put(key, new Entry<>(totals, expiryFor(end.toLocalDate())));
+        productTotalsSize += totals.size();
+
+        Iterator<Entry<Map<Integer, ProductPerformance>>> eldest = productTotals.values().iterator();
+        while (productTotalsSize > Config.REPORT_CACHE_MAX_PRODUCT_TOTALS) {
+            productTotalsSize -= eldest.next().value.size();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Drops everything cached for the day of a sale that has just been written to the database.
+     */
+    public synchronized void saleRecorded(LocalDateTime saleDate) {
+        version++;
+        days.remove(saleDate.toLocalDate());
+        Iterator<Map.Entry<PartitionKey, Entry<Map<Integer, ProductPerformance>>>> it = productTotals.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<PartitionKey, Entry<Map<Integer, ProductPerformance>>> cached = it.next();
+            if (cached.getKey().contains(saleDate)) {
+                productTotalsSize -= cached.getValue().value.size();
+                it.remove();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        version++;
+        days.clear();
+        clearProductTotals();
+    }
+
+    @Override
+    public synchronized void catalogReloaded(Collection<Product> products) {
+        version++;
+        clearProductTotals();
+    }
+
+    @Override
+    public synchronized void productChanged(Product product) {
+        // Stock changes with every sale; only a change to what the report shows matters
+        String seen = labels.get(product.getId());
+        if (seen != null && !seen.equals(label(product.getName(), product.getCategory()))) {
+            version++;
+            clearProductTotals();
+        }
+    }
+
+    @Override
+    public synchronized void productRemoved(int id) {
+        if (labels.containsKey(id)) {
+            version++;
+            clearProductTotals();
+        }
+    }
+
+    private void removeProductTotals(PartitionKey key) {
+        Entry<Map<Integer, ProductPerformance>> removed = productTotals.remove(key);
+        if (removed != null) {
+            productTotalsSize -= removed.value.size();
+        }
+    }
+
+    private void clearProductTotals() {
+        productTotals.clear();
+        productTotalsSize = 0;
+        labels.clear();
+    }
+
+    private static long expiryFor(LocalDate lastDay) {
+        long ttl = lastDay.isBefore(Today.get())
+                ? Config.REPORT_CACHE_CLOSED_DAY_TTL_MS
+                : Config.REPORT_CACHE_OPEN_DAY_TTL_MS;
+        return System.currentTimeMillis() + ttl;
+    }
+
+    private static String label(String name, String category) {
+        return name + '\n' + category;
+    }
+}
@@ -0,0 +1,217 @@
+package org.example.service;
+
+import org.example.dao.SaleDAO;
+import org.example.model.DailySalesSummary;
+import org.example.model.ProductPerformance;
+import org.example.util.Config;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Computes reports over long date ranges by splitting them into partitions of
+ * {@link Config#REPORT_PARTITION_DAYS} days, aggregating each partition in the database on
+ * its own pooled connection, and merging the partial aggregates.
+ *
+ * At most {@link Config#REPORT_THREADS} partitions run at once, leaving the rest of the
+ * connection pool to the tills. A product report over no more than
+ * {@link Config#REPORT_PARTITION_DAYS} days is a single query instead, so its limit is
+ * applied in the database. Partitions are aligned to fixed blocks of days rather than to
+ * the range, so overlapping ranges share partitions, and each partition's aggregate is
+ * kept in the {@link ReportCache}.
+ */
+public class ReportEngine {
+    private static final ExecutorService reportExecutor = Executors.newFixedThreadPool(Config.REPORT_THREADS, r -> {
+        Thread t = new Thread(r, "report-worker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // Best sellers first, as in the single-query report
+    private static final Comparator<ProductPerformance> BY_REVENUE = Comparator
+            .comparing(ProductPerformance::getRevenue).reversed()
+            .thenComparingInt(ProductPerformance::getProductId);
+
+    private final SaleDAO saleDAO;
+    private final ReportCache cache;
+
+    public ReportEngine(SaleDAO saleDAO, ReportCache cache) {
+        this.saleDAO = saleDAO;
+        this.cache = cache;
+    }
+
+    /**
+     * The daily rollup for the range, oldest day first. Cached days are not read again;
+     * the days that are missing are read in one query.
+     *
+     * @return the report, or an empty list if the query failed
+     */
+    public List<DailySalesSummary> getDailySalesSummary(LocalDate startDate, LocalDate endDate) {
+        // Held here rather than looked up again, as storing the missing days may evict others
+        Map<LocalDate, DailySalesSummary> cached = new HashMap<>();
+        LocalDate missingFrom = null;
+        LocalDate missingTo = null;
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            DailySalesSummary summary = cache.getDay(day);
+            if (summary != null) {
+                cached.put(day, summary);
+            } else {
+                if (missingFrom == null) {
+                    missingFrom = day;
+                }
+                missingTo = day;
+            }
+        }
+
+        Map<LocalDate, DailySalesSummary> read = new HashMap<>();
+        if (missingFrom != null) {
+            long version = cache.getVersion();
+            if (!saleDAO.forEachDailySummary(missingFrom, missingTo, summary -> read.put(summary.getDate(), summary))) {
+                return new ArrayList<>();
+            }
+            cache.putDays(missingFrom, missingTo, read, version);
+        }
+
+        List<DailySalesSummary> summaries = new ArrayList<>();
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            DailySalesSummary summary;
+            if (missingFrom != null && !day.isBefore(missingFrom) && !day.isAfter(missingTo)) {
+                summary = read.get(day);
+            } else {
+                summary = cached.get(day);
+            }
+            if (summary != null && summary.getSaleCount() > 0) {
+                summaries.add(summary);
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Quantity and revenue per product over the range, best sellers by revenue first, with
+     * each product's share of the total revenue.
+     *
+     * @param category only products in this category, or null for all
+     * @param limit    at most this many products; 0 for no limit
+     * @return the report, or an empty list if any partition failed
+     */
+    public List<ProductPerformance> getProductPerformance(LocalDateTime startDate, LocalDateTime endDate,
+                                                          String category, int limit) {
+        if (!isLongRange(startDate, endDate)) {
+            // Not worth partitioning: the database sorts, limits and computes the shares itself
+            List<ProductPerformance> results = new ArrayList<>();
+            if (!saleDAO.forEachProductPerformance(startDate, endDate, category, limit, results::add)) {
+                return new ArrayList<>();
+            }
+            return results;
+        }
+
+        List<LocalDateTime[]> partitions = partition(startDate, endDate);
+        long version = cache.getVersion();
+
+        // Cached partitions are used as they are; the rest are queried, concurrently if several
+        List<Map<Integer, ProductPerformance>> partials = new ArrayList<>(partitions.size());
+        List<LocalDateTime[]> toRead = new ArrayList<>();
+        for (LocalDateTime[] range : partitions) {
+            Map<Integer, ProductPerformance> cached = cache.getProductTotals(range[0], range[1], category);
+            if (cached != null) {
+                partials.add(cached);
+            } else {
+                toRead.add(range);
+            }
+        }
+
+        if (toRead.size() == 1) {
+            partials.add(productTotals(toRead.get(0), category, version));
+        } else if (!toRead.isEmpty()) {
+            List<CompletableFuture<Map<Integer, ProductPerformance>>> futures = new ArrayList<>(toRead.size());
+            for (LocalDateTime[] range : toRead) {
+                futures.add(CompletableFuture.supplyAsync(() -> productTotals(range, category, version), reportExecutor));
+            }
+            for (CompletableFuture<Map<Integer, ProductPerformance>> future : futures) {
+                partials.add(future.join());
+            }
+        }
+
+        // Partials may be shared with the cache, so totals are accumulated into copies
+        Map<Integer, ProductPerformance> merged = new HashMap<>();
+        long totalCents = 0;
+        for (Map<Integer, ProductPerformance> partial : partials) {
+            if (partial == null) {
+                return new ArrayList<>();
+            }
+            for (ProductPerformance performance : partial.values()) {
+                ProductPerformance total = merged.get(performance.getProductId());
+                if (total == null) {
+                    merged.put(performance.getProductId(), new ProductPerformance(
+                            performance.getProductId(),
+                            performance.getProductName(),
+                            performance.getCategory(),
+                            performance.getQuantitySold(),
+                            performance.getRevenue(),
+                            0.0));
+                } else {
+                    total.setQuantitySold(total.getQuantitySold() + performance.getQuantitySold());
+                    total.setRevenue(total.getRevenue().plus(performance.getRevenue()));
+                }
+                totalCents += performance.getRevenue().getCents();
+            }
+        }
+
+        List<ProductPerformance> results = new ArrayList<>(merged.values());
+        results.sort(BY_REVENUE);
+        if (limit > 0 && results.size() > limit) {
+            results = new ArrayList<>(results.subList(0, limit));
+        }
+        for (ProductPerformance performance : results) {
+            performance.setPercentOfTotal(totalCents != 0 ? performance.getRevenue().getCents() * 100.0 / totalCents : 0.0);
+        }
+        return results;
+    }
+
+    // One partition's totals keyed by product id, or null if its query failed
+    private Map<Integer, ProductPerformance> productTotals(LocalDateTime[] range, String category, long version) {
+        Map<Integer, ProductPerformance> totals = new HashMap<>();
+        if (!saleDAO.forEachProductTotal(range[0], range[1], category,
+                performance -> totals.put(performance.getProductId(), performance))) {
+            return null;
+        }
+        cache.putProductTotals(range[0], range[1], category, totals, version);
+        return totals;
+    }
+
+    // True if the range covers more calendar days than one partition holds
+    static boolean isLongRange(LocalDateTime startDate, LocalDateTime endDate) {
+        return endDate.toLocalDate().toEpochDay() - startDate.toLocalDate().toEpochDay() >= Config.REPORT_PARTITION_DAYS;
+    }
+
+    /**
+     * Splits the range into partitions along fixed blocks of
+     * {@link Config#REPORT_PARTITION_DAYS} days counted from the epoch; the first and last
+     * keep the range's own start and end times.
+     */
+    static List<LocalDateTime[]> partition(LocalDateTime startDate, LocalDateTime endDate) {
+        List<LocalDateTime[]> partitions = new ArrayList<>();
+        LocalDateTime start = startDate;
+        while (true) {
+            long firstDay = start.toLocalDate().toEpochDay();
+            LocalDate lastDay = LocalDate.ofEpochDay(firstDay - Math.floorMod(firstDay, Config.REPORT_PARTITION_DAYS)
+                    + Config.REPORT_PARTITION_DAYS - 1);
+            if (!lastDay.isBefore(endDate.toLocalDate())) {
+                partitions.add(new LocalDateTime[]{start, endDate});
+                return partitions;
+            }
+            partitions.add(new LocalDateTime[]{start, LocalDateTime.of(lastDay, LocalTime.MAX)});
+            start = lastDay.plusDays(1).atStartOfDay();
+        }
+    }
+}
@@ -1,49 +1,393 @@
 package org.example.service;
 
-import org.example.dao.ProductDAO;
 import org.example.dao.SaleDAO;
+import org.example.dao.SaleJournal;
+import org.example.model.DailySalesSummary;
 import org.example.model.Product;
+import org.example.model.ProductPerformance;
 import org.example.model.Sale;
+import org.example.model.SaleLine;
+import org.example.model.SaleResult;
+import org.example.util.Config;
+import org.example.util.CsvWriter;
+import org.example.util.Metrics;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 public class SaleService {
+    // Shared by all tills in this process; bounded so a stalled database can't queue work without limit
+    private static final ExecutorService checkoutExecutor = new ThreadPoolExecutor(
+            Config.CHECKOUT_THREADS, Config.CHECKOUT_THREADS,
+            0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Config.CHECKOUT_QUEUE_CAPACITY),
+            r -> {
+                Thread t = new Thread(r, "checkout-worker");
+                t.setDaemon(true);
+                return t;
+            });
+
+    private static volatile SaleJournal journal;
+    // Makes the cached stock check and decrement atomic between tills in this process
+    private static final Object stockLock = new Object();
+
+    // Shared so every report view benefits from what another has already read
+    private static final ReportCache reportCache = new ReportCache();
+
+    static {
+        ProductService.addCatalogListener(reportCache);
+    }
+
+    private static final Metrics.Counter SALES_COMMITTED = Metrics.counter("pos_sales_committed_total", "Sales completed at checkout");
+    private static final Metrics.Counter SALES_REJECTED = Metrics.counter("pos_sales_rejected_total", "Checkouts refused for stock or errors");
+    private static final Metrics.Counter SALES_JOURNALED = Metrics.counter("pos_sales_journaled_total", "Sales committed to the local journal ahead of the database");
+    private static final Metrics.Counter SALES_OVERSOLD = Metrics.counter("pos_sales_oversold_total", "Journaled sales that took stock below zero on replay");
+
+    static {
+        Metrics.gauge("pos_sales_journal_pending", "Journaled sales not yet written to the database",
+                SaleService::getJournalPendingCount);
+        Metrics.gauge("pos_sales_journal_rejected", "Unreadable journal records set aside for review since startup",
+                SaleService::getJournalRejectedCount);
+    }
+
+    private static final int EXPORT_PROGRESS_INTERVAL = 1000; // Rows between progress callbacks
+    private static final DateTimeFormatter EXPORT_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
     private SaleDAO saleDAO;
-    private ProductDAO productDAO;
+    private ReportEngine reportEngine;
+    private ProductService productService;
 
     public SaleService() {
         saleDAO = new SaleDAO();
-        productDAO = new ProductDAO();
+        reportEngine = new ReportEngine(saleDAO, reportCache);
+        productService = new ProductService();
+    }
+
+    /**
+     * Opens the local sales journal, reports any sales left over from the last run and
+     * starts replaying them into the database. Call once at startup.
+     */
+    public static void startJournal() {
+        if (!Config.ENABLE_SALES_JOURNAL || journal != null) {
+            return;
+        }
+
+        SaleDAO dao = new SaleDAO();
+        try {
+            SaleJournal opened = SaleJournal.open(Paths.get(Config.SALES_JOURNAL_PATH),
+                    Config.SALES_JOURNAL_SIZE_BYTES, dao, Config.SALES_JOURNAL_RETRY_MS);
+            int pending = opened.getPendingCount();
+            if (pending > 0) {
+                System.out.println("Recovered " + pending + " journaled sale(s) waiting to be written to the database");
+            }
+            opened.setReplayListener(SaleService::saleRecorded);
+            opened.setOversellListener(SaleService::saleOversold);
+            opened.startDrainer();
+            journal = opened;
+        } catch (IOException e) {
+            System.err.println("Sales journal disabled: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the number of journaled sales not yet written to the database.
+     */
+    public static int getJournalPendingCount() {
+        SaleJournal current = journal;
+        return current != null ? current.getPendingCount() : 0;
     }
 
-    public boolean processSale(Sale sale) {
-        // Check product availability
-        for (Sale.SaleItem item : sale.getItems()) {
-            Product product = productDAO.getProductById(item.getProductId());
-            if (product == null || product.getStock() < item.getQuantity()) {
-                return false; // Not enough stock
+    /**
+     * Returns the number of unreadable journal records set aside for review since startup.
+     */
+    public static long getJournalRejectedCount() {
+        SaleJournal current = journal;
+        return current != null ? current.getRejectedCount() : 0;
+    }
+
+    public static void stopJournal() {
+        SaleJournal current = journal;
+        journal = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    /**
+     * Commits the sale. With the sales journal running, the sale is checked against the
+     * cached stock and made durable in the local journal, and reaches the database in the
+     * background. The sale is paid for by then, so if another till sold the same stock in the
+     * meantime it is still recorded, and the oversold products are logged in
+     * {@code stock_oversells} and show up as low stock. Otherwise stock is validated and
+     * decremented atomically in the database, so two tills selling the last unit cannot both
+     * succeed.
+     */
+    public SaleResult processSale(Sale sale) {
+        return Metrics.time("SaleService.processSale", () -> {
+            SaleResult result = commitSale(sale);
+            (result.isSuccess() ? SALES_COMMITTED : SALES_REJECTED).increment();
+            return result;
+        });
+    }
+
+    private SaleResult commitSale(Sale sale) {
+        if (sale.getItems().isEmpty()) {
+            return SaleResult.error(sale, "Cart is empty");
+        }
+
+        SaleJournal current = journal;
+        if (current != null) {
+            synchronized (stockLock) {
+                List<Sale.SaleItem> failed = new ArrayList<>();
+                Map<Integer, Integer> requested = new HashMap<>();
+                for (Sale.SaleItem item : sale.getItems()) {
+                    int total = requested.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+                    Product product = productService.getProductById(item.getProductId());
+                    if (product == null || product.getStock() < total) {
+                        failed.add(item);
+                    }
+                }
+                if (!failed.isEmpty()) {
+                    return SaleResult.insufficientStock(sale, failed);
+                }
+
+                try {
+                    sale.setJournalId(UUID.randomUUID().toString());
+                    if (current.append(sale)) {
+                        productService.applySale(sale);
+                        SALES_JOURNALED.increment();
+                        return SaleResult.success(sale);
+                    }
+                    System.err.println("Sales journal is full, writing sale directly to the database");
+                } catch (IOException e) {
+                    System.err.println("Could not journal sale, writing directly to the database: " + e.getMessage());
+                }
+                sale.setJournalId(null);
+            }
+        }
+
+        // Process the sale and keep the cached catalog in step with the new stock levels
+        SaleResult result = saleDAO.createSale(sale);
+        if (result.isSuccess()) {
+            productService.applySale(sale);
+            saleRecorded(sale);
+        } else {
+            // Our cached stock was stale for these lines; pick up the real levels
+            for (Sale.SaleItem item : result.getFailedItems()) {
+                productService.refreshProduct(item.getProductId());
             }
         }
+        return result;
+    }
 
-        // Process the sale
-        return saleDAO.createSale(sale);
+    /**
+     * Commits the sale on a background worker so the caller (usually the Swing EDT) is not
+     * blocked by the database. The future never completes exceptionally; failures are
+     * reported through the returned SaleResult.
+     */
+    public CompletableFuture<SaleResult> processSaleAsync(Sale sale) {
+        try {
+            return CompletableFuture.supplyAsync(() -> processSale(sale), checkoutExecutor)
+                    .exceptionally(e -> SaleResult.error(sale, e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(SaleResult.error(sale, "Too many checkouts in progress"));
+        }
     }
 
     public Sale createNewSale() {
-        Sale sale = new Sale();
-        sale.setUserId(AuthService.getCurrentUser().getId());
-        sale.setSaleDate(LocalDateTime.now());
-        return sale;
+        return Metrics.time("SaleService.createNewSale", () -> {
+            Sale sale = new Sale();
+            sale.setUserId(AuthService.getCurrentUser().getId());
+            sale.setSaleDate(LocalDateTime.now());
+            return sale;
+        });
     }
 
     public void addItemToSale(Sale sale, Product product, int quantity) {
-        if (product.getStock() >= quantity) {
-            sale.addItem(product, quantity);
-        }
+        Metrics.time("SaleService.addItemToSale", () -> {
+            Sale.SaleItem line = sale.getItemForProduct(product.getId());
+            int inCart = line != null ? line.getQuantity() : 0;
+            if (product.getStock() >= inCart + quantity) {
+                sale.addItem(product, quantity);
+            }
+        });
     }
 
     public List<Sale> getSalesByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return saleDAO.getSalesByDateRange(startDate, endDate);
+        return Metrics.time("SaleService.getSalesByDateRange", () -> saleDAO.getSalesByDateRange(startDate, endDate));
+    }
+
+    /**
+     * Daily totals over the range; days already read are served from the report cache.
+     */
+    public List<DailySalesSummary> getDailySalesSummary(LocalDate startDate, LocalDate endDate) {
+        return Metrics.time("SaleService.getDailySalesSummary",
+                () -> reportEngine.getDailySalesSummary(startDate, endDate));
+    }
+
+    // A journaled sale that another till had already sold the stock for; pick up the real,
+    // now negative, levels so the low-stock alerts show the shortfall
+    private static void saleOversold(SaleResult result) {
+        SALES_OVERSOLD.increment();
+        ProductService products = new ProductService();
+        for (Sale.SaleItem item : result.getOversoldItems()) {
+            products.refreshProduct(item.getProductId());
+        }
+    }
+
+    // Called once the sale is in the database, directly or by journal replay
+    private static void saleRecorded(Sale sale) {
+        if (sale.getSaleDate() != null) {
+            reportCache.saleRecorded(sale.getSaleDate());
+        }
+    }
+
+    /**
+     * Per-product sales over the range; ranges longer than a partition are aggregated in
+     * parallel partitions, and partitions already read are served from the report cache.
+     */
+    public List<ProductPerformance> getProductPerformance(LocalDateTime startDate, LocalDateTime endDate,
+                                                          String category, int limit) {
+        return Metrics.time("SaleService.getProductPerformance",
+                () -> reportEngine.getProductPerformance(startDate, endDate, category, limit));
+    }
+
+    public boolean forEachSaleInRange(LocalDateTime startDate, LocalDateTime endDate, Consumer<Sale> visitor) {
+        return Metrics.time("SaleService.forEachSaleInRange",
+                () -> saleDAO.forEachSaleInRange(startDate, endDate, visitor));
+    }
+
+    public long countSaleLines(LocalDate startDate, LocalDate endDate) {
+        return Metrics.time("SaleService.countSaleLines", () -> saleDAO.countSaleLines(startDate, endDate));
+    }
+
+    /**
+     * Writes the daily sales rollup for the range to a CSV file.
+     *
+     * @return the number of rows written, or -1 if the export failed
+     */
+    public long exportDailySalesSummary(LocalDate startDate, LocalDate endDate, Path file, LongConsumer progress) {
+        return exportCsv("SaleService.exportDailySalesSummary", file, new String[]{"date", "total_sales", "sale_count", "item_count", "average_sale"},
+                visitor -> saleDAO.forEachDailySummary(startDate, endDate, visitor),
+                (CsvWriter writer, DailySalesSummary summary) -> writer
+                        .field(summary.getDate())
+                        .field(summary.getTotalSales())
+                        .field(summary.getSaleCount())
+                        .field(summary.getItemCount())
+                        .field(summary.getAverageSale()),
+                progress);
+    }
+
+    /**
+     * Writes the product performance report for the range to a CSV file.
+     *
+     * @return the number of rows written, or -1 if the export failed
+     */
+    public long exportProductPerformance(LocalDateTime startDate, LocalDateTime endDate, String category, int limit,
+                                         Path file, LongConsumer progress) {
+        return exportCsv("SaleService.exportProductPerformance", file, new String[]{"product_id", "product", "category", "quantity_sold", "revenue", "percent_of_total"},
+                visitor -> saleDAO.forEachProductPerformance(startDate, endDate, category, limit, visitor),
+                (CsvWriter writer, ProductPerformance performance) -> writer
+                        .field(performance.getProductId())
+                        .field(performance.getProductName())
+                        .field(performance.getCategory())
+                        .field(performance.getQuantitySold())
+                        .field(performance.getRevenue())
+                        .field(String.format(Locale.ROOT, "%.2f", performance.getPercentOfTotal())),
+                progress);
+    }
+
+    /**
+     * Writes every line item sold in the range to a CSV file, one row per line.
+     *
+     * @return the number of rows written, or -1 if the export failed
+     */
+    public long exportSaleLines(LocalDateTime startDate, LocalDateTime endDate, Path file, LongConsumer progress) {
+        return exportCsv("SaleService.exportSaleLines", file, new String[]{"sale_id", "sale_date", "user_id", "product_id", "product", "quantity", "unit_price", "subtotal"},
+                visitor -> saleDAO.forEachSaleLine(startDate, endDate, visitor),
+                (CsvWriter writer, SaleLine line) -> writer
+                        .field(line.getSaleId())
+                        .field(line.getSaleDate().format(EXPORT_TIMESTAMP_FORMAT))
+                        .field(line.getUserId())
+                        .field(line.getProductId())
+                        .field(line.getProductName())
+                        .field(line.getQuantity())
+                        .field(line.getUnitPrice())
+                        .field(line.getSubtotal()),
+                progress);
+    }
+
+    private interface RowSource<T> {
+        boolean forEach(Consumer<T> visitor);
+    }
+
+    private interface RowFormat<T> {
+        void write(CsvWriter writer, T row);
+    }
+
+    /**
+     * Streams rows from the query straight into the file as they arrive, so memory use is
+     * fixed whatever the size of the export. A failed export deletes its partial file.
+     */
+    private <T> long exportCsv(String method, Path file, String[] header, RowSource<T> source, RowFormat<T> format,
+                               LongConsumer progress) {
+        return Metrics.time(method, () -> writeCsv(file, header, source, format, progress));
+    }
+
+    private <T> long writeCsv(Path file, String[] header, RowSource<T> source, RowFormat<T> format,
+                              LongConsumer progress) {
+        long[] written = {0};
+        boolean complete;
+
+        try (CsvWriter writer = new CsvWriter(file)) {
+            writer.writeRow(header);
+            complete = source.forEach(row -> {
+                format.write(writer, row);
+                try {
+                    writer.endRow();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                if (++written[0] % EXPORT_PROGRESS_INTERVAL == 0 && progress != null) {
+                    progress.accept(written[0]);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error writing export file: " + e.getMessage());
+            complete = false;
+        }
+
+        if (!complete) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Error removing incomplete export: " + e.getMessage());
+            }
+            return -1;
+        }
+        if (progress != null) {
+            progress.accept(written[0]);
+        }
+        return written[0];
     }
-}
\ No newline at end of file
+}
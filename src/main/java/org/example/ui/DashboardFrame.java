@@ -1,7 +1,12 @@
 package org.example.ui;
 
 import org.example.service.AuthService;
+import org.example.service.SaleService;
 import org.example.util.Config;
+import org.example.util.ConnectionPool;
+import org.example.util.DatabaseUtil;
+import org.example.util.LatencyHistogram;
+import org.example.util.Metrics;
 
 import javax.swing.*;
 import java.awt.*;
@@ -11,6 +16,8 @@ public class DashboardFrame extends JFrame {
     private ProductPanel productPanel;
     private SalesPanel salesPanel;
     private ReportPanel reportPanel;
+    private JLabel statusLabel;
+    private Timer metricsTimer;
 
     public DashboardFrame() {
         setTitle(Config.APP_NAME + " v" + Config.APP_VERSION + " - Logged in as: " + AuthService.getCurrentUser().getUsername());
@@ -67,9 +74,13 @@ public class DashboardFrame extends JFrame {
         JPanel panel = new JPanel(new BorderLayout());
         panel.setBorder(BorderFactory.createEmptyBorder(5, 10, 5, 10));
 
-        JLabel statusLabel = new JLabel("Ready");
+        statusLabel = new JLabel("Ready");
         panel.add(statusLabel, BorderLayout.WEST);
 
+        // Live latency summary for this till
+        metricsTimer = new Timer(2000, e -> updateMetricsStatus());
+        metricsTimer.start();
+
         JLabel userLabel = new JLabel("User: " + AuthService.getCurrentUser().getUsername() +
                 " | Role: " + AuthService.getCurrentUser().getRole());
         panel.add(userLabel, BorderLayout.EAST);
@@ -77,6 +88,45 @@ public class DashboardFrame extends JFrame {
         return panel;
     }
 
+    private void updateMetricsStatus() {
+        ConnectionPool pool = DatabaseUtil.getPool();
+        String status = String.format("Till %s | Checkout p99 %s | Lookup p99 %s | Search p99 %s | DB connections %d/%d",
+                Config.TILL_ID,
+                formatP99("SaleService.processSale"),
+                formatP99("ProductService.getProductById"),
+                formatP99("ProductService.searchProducts"),
+                pool.getActiveConnections(), pool.getMaxSize());
+
+        // Sales waiting for the database, or set aside for review, need attention
+        int pending = SaleService.getJournalPendingCount();
+        long rejected = SaleService.getJournalRejectedCount();
+        if (pending > 0) {
+            status += " | " + pending + " sale(s) waiting for the database";
+        }
+        if (rejected > 0) {
+            status += " | " + rejected + " unreadable journal record(s) need review";
+        }
+        statusLabel.setForeground(rejected > 0 ? Color.RED : pending > 0 ? new Color(255, 140, 0) : Color.BLACK);
+        statusLabel.setText(status);
+    }
+
+    private static String formatP99(String method) {
+        LatencyHistogram timer = Metrics.findTimer(Metrics.SERVICE_CALLS, method);
+        if (timer == null || timer.getCount() == 0) {
+            return "-";
+        }
+        double millis = timer.getPercentileSeconds(99) * 1000;
+        return millis < 1 ? String.format("%.0f \u00b5s", millis * 1000) : String.format("%.1f ms", millis);
+    }
+
+    @Override
+    public void dispose() {
+        if (metricsTimer != null) {
+            metricsTimer.stop();
+        }
+        super.dispose();
+    }
+
     private void logout() {
         AuthService authService = new AuthService();
         authService.logout();
@@ -0,0 +1,67 @@
+package org.example.ui;
+
+import org.example.service.AuthService;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.Arrays;
+
+/**
+ * Asks for the first administrator account when the database has no users yet, since
+ * otherwise nobody could log in to create one.
+ */
+public class FirstRunSetup {
+
+    /**
+     * Shows the setup form until an administrator has been created or the user cancels.
+     *
+     * @return true once the account exists, false if setup was cancelled
+     */
+    public static boolean createAdministrator(AuthService authService) {
+        JTextField usernameField = new JTextField("admin", 15);
+        JPasswordField passwordField = new JPasswordField(15);
+        JPasswordField confirmField = new JPasswordField(15);
+
+        JPanel panel = new JPanel(new GridLayout(4, 2, 5, 5));
+        panel.add(new JLabel("No user accounts exist yet."));
+        panel.add(new JLabel("Create the administrator:"));
+        panel.add(new JLabel("Username:"));
+        panel.add(usernameField);
+        panel.add(new JLabel("Password:"));
+        panel.add(passwordField);
+        panel.add(new JLabel("Confirm Password:"));
+        panel.add(confirmField);
+
+        while (true) {
+            int result = JOptionPane.showConfirmDialog(null, panel,
+                    "First Run Setup", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+            if (result != JOptionPane.OK_OPTION) {
+                return false;
+            }
+
+            String username = usernameField.getText().trim();
+            char[] password = passwordField.getPassword();
+            char[] confirm = confirmField.getPassword();
+            if (username.isEmpty() || password.length == 0) {
+                JOptionPane.showMessageDialog(null, "Please enter a username and password.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                continue;
+            }
+            if (!Arrays.equals(password, confirm)) {
+                JOptionPane.showMessageDialog(null, "The passwords do not match.",
+                        "Error", JOptionPane.ERROR_MESSAGE);
+                continue;
+            }
+
+            if (authService.createFirstAdministrator(username, new String(password))) {
+                return true;
+            }
+            // Another till may have finished setup first, which is just as good
+            if (!authService.needsFirstAdministrator()) {
+                return true;
+            }
+            JOptionPane.showMessageDialog(null, "Failed to create the administrator. See the console for details.",
+                    "Error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+}
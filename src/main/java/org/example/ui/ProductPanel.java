@@ -1,6 +1,10 @@
 package org.example.ui;
 
+import org.example.dao.ProductDAO;
+import org.example.model.Money;
 import org.example.model.Product;
+import org.example.model.ProductImportResult;
+import org.example.service.InventoryAlertEngine;
 import org.example.service.ProductService;
 
 import javax.swing.*;
@@ -8,16 +12,20 @@ import javax.swing.border.TitledBorder;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
-import java.math.BigDecimal;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 
 public class ProductPanel extends JPanel {
     private JTable productTable;
-    private DefaultTableModel tableModel;
+    private ProductTableModel tableModel;
     private ProductService productService;
 
     private JTextField nameField;
@@ -26,6 +34,21 @@ public class ProductPanel extends JPanel {
     private JTextField expiryField;
     private JTextField categoryField;
 
+    // The product shown in the form, by id so a reload that moves the rows cannot retarget an
+    // edit; null when the form is for a new product
+    private Integer selectedProductId;
+    // A row was selected before its page loaded; the form is filled when it arrives
+    private boolean selectionPending;
+
+    private JTabbedPane alertTabs;
+    private DefaultListModel<Product> lowStockModel;
+    private DefaultListModel<Product> expiringModel;
+    private InventoryAlertEngine.Listener alertListener;
+
+    private JButton importButton;
+    private JButton exportButton;
+    private JProgressBar transferProgress;
+
     public ProductPanel() {
         productService = new ProductService();
 
@@ -46,18 +69,16 @@ public class ProductPanel extends JPanel {
         JPanel alertPanel = createAlertPanel();
         add(alertPanel, BorderLayout.NORTH);
 
+        add(createTransferPanel(), BorderLayout.SOUTH);
+
         // Load data
         refreshProductTable();
     }
 
     private void createTable() {
-        String[] columnNames = {"ID", "Name", "Price", "Stock", "Expiry Date", "Category"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table non-editable
-            }
-        };
+        // Rows are loaded page by page as they scroll into view, so the table opens at the same
+        // speed however large the catalog is
+        tableModel = new ProductTableModel(productService);
 
         productTable = new JTable(tableModel);
         productTable.setRowHeight(25);
@@ -69,7 +90,19 @@ public class ProductPanel extends JPanel {
         productTable.getTableHeader().setBackground(new Color(70, 130, 180));
         productTable.getTableHeader().setForeground(Color.BLACK);
         productTable.setShowGrid(true);
-        productTable.setAutoCreateRowSorter(true);
+
+        // Sorting is done by the database, one header click at a time
+        productTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = productTable.convertColumnIndexToModel(productTable.columnAtPoint(e.getPoint()));
+                ProductDAO.SortKey sort = tableModel.getSortForColumn(column);
+                if (sort != null) {
+                    clearFormFields();
+                    tableModel.setSort(sort);
+                }
+            }
+        });
 
         //Custom renderer for highlighting low stock and expiring products
         productTable.setDefaultRenderer(Object.class, new DefaultTableCellRenderer() {
@@ -78,14 +111,13 @@ public class ProductPanel extends JPanel {
                 Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
 
                 if (!isSelected) {
-                    int modelRow = table.convertRowIndexToModel(row);
-                    int stock = (int) tableModel.getValueAt(modelRow, 3);
-                    String expiryDateStr = tableModel.getValueAt(modelRow, 4).toString();
+                    Product product = tableModel.getProductAt(table.convertRowIndexToModel(row));
 
-                    if (stock < 10) {
+                    if (product == null) {
+                        c.setBackground(Color.WHITE); // Page still loading
+                    } else if (product.getStock() < 10) {
                         c.setBackground(new Color(255, 240, 240)); // Light red for low stock
-                    } else if (!expiryDateStr.isEmpty() &&
-                            LocalDate.parse(expiryDateStr).isBefore(LocalDate.now().plusDays(30))) {
+                    } else if (product.isExpiring()) {
                         c.setBackground(new Color(255, 248, 220)); // Light yellow for expiring
                     } else {
                         c.setBackground(Color.WHITE);
@@ -99,14 +131,35 @@ public class ProductPanel extends JPanel {
         // Selection listener
         productTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) {
-                int selectedRow = productTable.getSelectedRow();
-                if (selectedRow != -1) {
-                    populateFormFields(selectedRow);
-                }
+                selectionChanged();
+            }
+        });
+        tableModel.addTableModelListener(e -> {
+            if (selectionPending) {
+                selectionChanged();
             }
         });
     }
 
+    // A cleared selection (e.g. by a refresh) keeps the product in the form; only New clears it
+    private void selectionChanged() {
+        int selectedRow = productTable.getSelectedRow();
+        if (selectedRow == -1) {
+            selectionPending = false;
+            return;
+        }
+        Product product = tableModel.getProductAt(productTable.convertRowIndexToModel(selectedRow));
+        if (product != null) {
+            selectionPending = false;
+            selectedProductId = product.getId();
+            populateFormFields(product);
+        } else {
+            selectionPending = true;
+            selectedProductId = null;
+            clearTextFields();
+        }
+    }
+
     private JPanel createFormPanel() {
         JPanel panel = new JPanel(new GridBagLayout());
         panel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createLineBorder(new Color(70, 130, 180), 2), "Product Details",
@@ -282,44 +335,34 @@ public class ProductPanel extends JPanel {
         panel.setBorder(BorderFactory.createTitledBorder(BorderFactory.createLineBorder(new Color(255, 140, 0), 2), "Alerts",
                 TitledBorder.LEFT, TitledBorder.TOP, new Font("Arial", Font.BOLD, 14), new Color(255, 140, 0)));
 
-        JTabbedPane alertTabs = new JTabbedPane();
+        alertTabs = new JTabbedPane();
 
         // Low stock products tab
         JList<Product> lowStockList = new JList<>();
-        DefaultListModel<Product> lowStockModel = new DefaultListModel<>();
+        lowStockModel = new DefaultListModel<>();
         lowStockList.setModel(lowStockModel);
         lowStockList.setCellRenderer(new ProductListCellRenderer());
 
         // Expiring products tab
         JList<Product> expiringList = new JList<>();
-        DefaultListModel<Product> expiringModel = new DefaultListModel<>();
+        expiringModel = new DefaultListModel<>();
         expiringList.setModel(expiringModel);
         expiringList.setCellRenderer(new ProductListCellRenderer());
 
-        // Populate lists
-        List<Product> lowStockProducts = productService.getLowStockProducts();
-        for (Product p : lowStockProducts) {
-            lowStockModel.addElement(p);
-        }
-
-        List<Product> expiringProducts = productService.getExpiringProducts();
-        for (Product p : expiringProducts) {
-            expiringModel.addElement(p);
-        }
-
-        // Add tabs
-        alertTabs.addTab("Low Stock (" + lowStockProducts.size() + ")", new JScrollPane(lowStockList));
+        // Add tabs; the lists are filled and kept current by the alert engine (see addNotify)
+        alertTabs.addTab("Low Stock (0)", new JScrollPane(lowStockList));
         alertTabs.setForegroundAt(0, Color.RED);
 
-        alertTabs.addTab("Expiring (" + expiringProducts.size() + ")", new JScrollPane(expiringList));
+        alertTabs.addTab("Expiring (0)", new JScrollPane(expiringList));
         alertTabs.setForegroundAt(1, new Color(255, 140, 0));
 
         panel.add(alertTabs, BorderLayout.CENTER);
 
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
         // Add refresh button
+        // Alerts follow this till's changes by themselves; a refresh picks up other tills' changes
         JButton refreshButton = new JButton("Refresh Alerts");
-        refreshButton.addActionListener(e -> refreshAlerts(lowStockModel, expiringModel));
+        refreshButton.addActionListener(e -> CompletableFuture.runAsync(productService::reloadCatalog));
 
         JButton restockButton = new JButton("Order for Restock");
         restockButton.setBackground(new Color(70, 130, 180));
@@ -328,7 +371,7 @@ public class ProductPanel extends JPanel {
         restockButton.setFocusPainted(false);
         restockButton.setBorderPainted(false);
         restockButton.setOpaque(true);
-        restockButton.addActionListener(e -> showRestockDialog(lowStockProducts));
+        restockButton.addActionListener(e -> showRestockDialog(productService.getLowStockProducts()));
         buttonPanel.add(refreshButton);
         buttonPanel.add(restockButton);
         panel.add(buttonPanel, BorderLayout.SOUTH);
@@ -336,6 +379,138 @@ public class ProductPanel extends JPanel {
         return panel;
     }
 
+    // Bulk CSV import and export of the whole catalog
+    private JPanel createTransferPanel() {
+        JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+
+        importButton = new JButton("Import CSV...");
+        importButton.addActionListener(e -> importProducts());
+        exportButton = new JButton("Export CSV...");
+        exportButton.addActionListener(e -> exportProducts());
+
+        transferProgress = new JProgressBar();
+        transferProgress.setStringPainted(true);
+        transferProgress.setVisible(false);
+
+        panel.add(importButton);
+        panel.add(exportButton);
+        panel.add(transferProgress);
+        return panel;
+    }
+
+    private void importProducts() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+
+        startTransfer(-1);
+        new SwingWorker<ProductImportResult, Long>() {
+            @Override
+            protected ProductImportResult doInBackground() {
+                return productService.importProducts(file, this::publish);
+            }
+
+            @Override
+            protected void process(List<Long> rows) {
+                transferProgress.setString(rows.get(rows.size() - 1) + " rows read");
+            }
+
+            @Override
+            protected void done() {
+                finishTransfer();
+                try {
+                    showImportResult(get());
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(ProductPanel.this, "Import failed: " + e.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+                refreshProductTable();
+            }
+        }.execute();
+    }
+
+    private void showImportResult(ProductImportResult result) {
+        if (result.getMessage() != null) {
+            JOptionPane.showMessageDialog(this, result.getMessage(), "Import Failed", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        String summary = result.getImported() + " products imported, " + result.getFailed() + " rows skipped.";
+        if (result.getErrors().isEmpty()) {
+            JOptionPane.showMessageDialog(this, summary, "Import Complete", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+
+        JTextArea errors = new JTextArea(String.join("\n", result.getErrors()), 15, 50);
+        errors.setEditable(false);
+        JPanel panel = new JPanel(new BorderLayout(0, 10));
+        panel.add(new JLabel(summary), BorderLayout.NORTH);
+        panel.add(new JScrollPane(errors), BorderLayout.CENTER);
+        JOptionPane.showMessageDialog(this, panel, "Import Complete", JOptionPane.WARNING_MESSAGE);
+    }
+
+    private void exportProducts() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setSelectedFile(new File("products.csv"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = chooser.getSelectedFile().toPath();
+
+        startTransfer(tableModel.getRowCount());
+        new SwingWorker<Long, Long>() {
+            @Override
+            protected Long doInBackground() {
+                return productService.exportProducts(file, this::publish);
+            }
+
+            @Override
+            protected void process(List<Long> written) {
+                long latest = written.get(written.size() - 1);
+                if (latest <= transferProgress.getMaximum()) {
+                    transferProgress.setValue((int) latest);
+                }
+                transferProgress.setString(latest + " products written");
+            }
+
+            @Override
+            protected void done() {
+                finishTransfer();
+                try {
+                    long count = get();
+                    if (count < 0) {
+                        JOptionPane.showMessageDialog(ProductPanel.this, "Could not write " + file,
+                                "Export Failed", JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(ProductPanel.this, count + " products exported to " + file,
+                                "Export Complete", JOptionPane.INFORMATION_MESSAGE);
+                    }
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(ProductPanel.this, "Export failed: " + e.getMessage(),
+                            "Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    // A negative total shows an indeterminate bar
+    private void startTransfer(int total) {
+        importButton.setEnabled(false);
+        exportButton.setEnabled(false);
+        transferProgress.setIndeterminate(total < 0);
+        transferProgress.setMaximum(Math.max(total, 1));
+        transferProgress.setValue(0);
+        transferProgress.setString("");
+        transferProgress.setVisible(true);
+    }
+
+    private void finishTransfer() {
+        importButton.setEnabled(true);
+        exportButton.setEnabled(true);
+        transferProgress.setVisible(false);
+    }
+
     private void showRestockDialog(List<Product> lowStockProducts){
         if (lowStockProducts.isEmpty()){
             JOptionPane.showMessageDialog(this, "No products need restocking.", "Restock Information", JOptionPane.INFORMATION_MESSAGE);
@@ -444,7 +619,6 @@ public class ProductPanel extends JPanel {
                 JOptionPane.showMessageDialog(restockDialog, "Order placed successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 restockDialog.dispose();
                 refreshProductTable();
-                refreshAlerts();
             }
         });
 
@@ -538,60 +712,118 @@ public class ProductPanel extends JPanel {
         }
     }
 
-    private void refreshAlerts(DefaultListModel<Product> lowStockModel, DefaultListModel<Product> expiringModel) {
-        lowStockModel.clear();
-        expiringModel.clear();
-
-        List<Product> lowStockProducts = productService.getLowStockProducts();
-        for (Product p : lowStockProducts) {
-            lowStockModel.addElement(p);
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        if (alertListener == null) {
+            alertListener = new AlertListener();
+            productService.addAlertListener(alertListener);
         }
+    }
 
-        List<Product> expiringProducts = productService.getExpiringProducts();
-        for (Product p : expiringProducts) {
-            expiringModel.addElement(p);
+    @Override
+    public void removeNotify() {
+        if (alertListener != null) {
+            productService.removeAlertListener(alertListener);
+            alertListener = null;
         }
+        super.removeNotify();
     }
 
-    private void refreshProductTable() {
-        tableModel.setRowCount(0);
+    // Applies alert changes from the alert engine to the alert lists, on the EDT
+    private class AlertListener implements InventoryAlertEngine.Listener {
+        @Override
+        public void alertsReset(InventoryAlertEngine.AlertType type, List<Product> products) {
+            SwingUtilities.invokeLater(() -> {
+                DefaultListModel<Product> model = modelFor(type);
+                model.clear();
+                for (Product product : products) {
+                    model.addElement(product);
+                }
+                updateAlertTitles();
+            });
+        }
 
-        List<Product> products = productService.getAllProducts();
+        @Override
+        public void alertRaised(InventoryAlertEngine.AlertType type, Product product) {
+            SwingUtilities.invokeLater(() -> {
+                DefaultListModel<Product> model = modelFor(type);
+                int index = indexOf(model, product.getId());
+                if (index >= 0) {
+                    model.set(index, product);
+                } else {
+                    model.addElement(product);
+                }
+                updateAlertTitles();
+            });
+        }
 
-        for (Product product : products) {
-            Object[] row = new Object[6];
-            row[0] = product.getId();
-            row[1] = product.getName();
-            row[2] = product.getPrice();
-            row[3] = product.getStock();
-            row[4] = product.getExpiryDate() != null ? product.getExpiryDate().toString() : "";
-            row[5] = product.getCategory();
+        @Override
+        public void alertCleared(InventoryAlertEngine.AlertType type, int productId) {
+            SwingUtilities.invokeLater(() -> {
+                DefaultListModel<Product> model = modelFor(type);
+                int index = indexOf(model, productId);
+                if (index >= 0) {
+                    model.remove(index);
+                }
+                updateAlertTitles();
+            });
+        }
+
+        private DefaultListModel<Product> modelFor(InventoryAlertEngine.AlertType type) {
+            return type == InventoryAlertEngine.AlertType.LOW_STOCK ? lowStockModel : expiringModel;
+        }
 
-            tableModel.addRow(row);
+        private int indexOf(DefaultListModel<Product> model, int productId) {
+            for (int i = 0; i < model.size(); i++) {
+                if (model.get(i).getId() == productId) {
+                    return i;
+                }
+            }
+            return -1;
         }
     }
 
-    private void populateFormFields(int selectedRow) {
-        nameField.setText(tableModel.getValueAt(selectedRow, 1).toString());
-        priceField.setText(tableModel.getValueAt(selectedRow, 2).toString());
-        stockField.setText(tableModel.getValueAt(selectedRow, 3).toString());
-        expiryField.setText(tableModel.getValueAt(selectedRow, 4) != null ? tableModel.getValueAt(selectedRow, 4).toString() : "");
-        categoryField.setText(tableModel.getValueAt(selectedRow, 5) != null ? tableModel.getValueAt(selectedRow, 5).toString() : "");
+    private void updateAlertTitles() {
+        alertTabs.setTitleAt(0, "Low Stock (" + lowStockModel.size() + ")");
+        alertTabs.setTitleAt(1, "Expiring (" + expiringModel.size() + ")");
+    }
+
+    private void refreshProductTable() {
+        tableModel.refresh();
+    }
+
+    private void populateFormFields(Product product) {
+        nameField.setText(product.getName());
+        priceField.setText(product.getPrice().toString());
+        stockField.setText(String.valueOf(product.getStock()));
+        expiryField.setText(product.getExpiryDate() != null ? product.getExpiryDate().toString() : "");
+        categoryField.setText(product.getCategory() != null ? product.getCategory() : "");
     }
 
     private void clearFormFields() {
+        selectedProductId = null;
+        selectionPending = false;
+        clearTextFields();
+        productTable.clearSelection();
+    }
+
+    private void clearTextFields() {
         nameField.setText("");
         priceField.setText("");
         stockField.setText("");
         expiryField.setText("");
         categoryField.setText("");
-        productTable.clearSelection();
     }
 
     private boolean saveProduct() {
+        if (selectionPending) {
+            JOptionPane.showMessageDialog(this, "The selected product is still loading.", "Error", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
         try {
             String name = nameField.getText().trim();
-            BigDecimal price = new BigDecimal(priceField.getText().trim());
+            Money price = Money.parse(priceField.getText());
             int stock = Integer.parseInt(stockField.getText().trim());
 
             LocalDate expiryDate = null;
@@ -606,22 +838,19 @@ public class ProductPanel extends JPanel {
 
             String category = categoryField.getText().trim();
 
-            int selectedRow = productTable.getSelectedRow();
             boolean success;
 
-            if (selectedRow == -1) {
+            if (selectedProductId == null) {
                 // Create new product
                 success = productService.createProduct(name, price, stock, expiryDate, category);
             } else {
                 // Update existing product
-                int id = (int) tableModel.getValueAt(selectedRow, 0);
-                success = productService.updateProduct(id, name, price, stock, expiryDate, category);
+                success = productService.updateProduct(selectedProductId, name, price, stock, expiryDate, category);
             }
 
             if (success) {
                 clearFormFields();
                 refreshProductTable();
-                refreshAlerts(); // Refresh alerts after modification
                 return true;
             } else {
                 JOptionPane.showMessageDialog(this, "Operation failed.", "Error", JOptionPane.ERROR_MESSAGE);
@@ -633,45 +862,24 @@ public class ProductPanel extends JPanel {
         }
     }
 
-    // Add this method to refresh alerts after product changes
-    private void refreshAlerts() {
-        // Remove the old alert panel
-        Component[] components = getComponents();
-        for (Component component : components) {
-            if (component instanceof JPanel && ((JPanel) component).getBorder() instanceof TitledBorder) {
-                TitledBorder border = (TitledBorder) ((JPanel) component).getBorder();
-                if (border.getTitle().equals("Alerts")) {
-                    remove(component);
-                    break;
-                }
-            }
-        }
-
-        // Add a new alert panel
-        JPanel alertPanel = createAlertPanel();
-        add(alertPanel, BorderLayout.NORTH);
-
-        revalidate();
-        repaint();
-    }
-
     private boolean deleteProduct() {
-        int selectedRow = productTable.getSelectedRow();
-        if (selectedRow == -1) {
+        if (selectionPending) {
+            JOptionPane.showMessageDialog(this, "The selected product is still loading.", "Error", JOptionPane.ERROR_MESSAGE);
+            return false;
+        }
+        if (selectedProductId == null) {
             JOptionPane.showMessageDialog(this, "Please select a product to delete.", "Error", JOptionPane.ERROR_MESSAGE);
             return false;
         }
 
         int confirm = JOptionPane.showConfirmDialog(this, "Are you sure you want to delete this product?", "Confirm Deletion", JOptionPane.YES_NO_OPTION);
         if (confirm == JOptionPane.YES_OPTION) {
-            int id = (int) tableModel.getValueAt(selectedRow, 0);
-            boolean success = productService.deleteProduct(id);
+            boolean success = productService.deleteProduct(selectedProductId);
 
             if (success) {
                 JOptionPane.showMessageDialog(this, "Product deleted successfully.");
                 clearFormFields();
                 refreshProductTable();
-                refreshAlerts();
                 return true;
             } else {
                 JOptionPane.showMessageDialog(this, "Deletion failed.", "Error", JOptionPane.ERROR_MESSAGE);
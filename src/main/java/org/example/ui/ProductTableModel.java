@@ -0,0 +1,203 @@
+package org.example.ui;
+
+import org.example.dao.ProductDAO;
+import org.example.model.Product;
+import org.example.service.ProductService;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Table model for the Products tab that loads rows a page at a time as they are scrolled into view.
+ *
+ * Pages are read on a background thread and kept in a small LRU cache; the neighbouring pages
+ * are prefetched so normal scrolling rarely shows an unloaded row. Rows that are not loaded yet
+ * render as blank and are filled in when their page arrives. A page whose predecessor is cached
+ * is read by key from the predecessor's last row; only jumps (e.g. dragging the scrollbar) fall
+ * back to reading by offset. A page that fails to load is not cached; it is read again when
+ * its rows next repaint, at most once per {@link #RETRY_DELAY_MS}. All state is confined to
+ * the EDT.
+ */
+public class ProductTableModel extends AbstractTableModel {
+    private static final String[] COLUMN_NAMES = {"ID", "Name", "Price", "Stock", "Expiry Date", "Category"};
+    private static final ProductDAO.SortKey[] COLUMN_SORTS = {
+            ProductDAO.SortKey.ID, ProductDAO.SortKey.NAME, ProductDAO.SortKey.PRICE,
+            ProductDAO.SortKey.STOCK, ProductDAO.SortKey.EXPIRY, null // Category is not sortable
+    };
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 20;
+    private static final int RETRY_DELAY_MS = 2000;
+
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "product-table-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ProductService productService;
+    private final Map<Integer, List<Product>> pages = new LinkedHashMap<Integer, List<Product>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Product>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    private int rowCount = 0;
+    private ProductDAO.SortKey sort = ProductDAO.SortKey.ID;
+    private int generation = 0; // Bumped on refresh so pages loaded for an older view are dropped
+
+    public ProductTableModel(ProductService productService) {
+        this.productService = productService;
+    }
+
+    /**
+     * Drops every cached page and re-reads the row count; visible rows reload as they repaint.
+     */
+    public void refresh() {
+        final int gen = ++generation;
+        pages.clear();
+        loading.clear();
+
+        loader.execute(() -> {
+            int count = productService.getProductCount();
+            SwingUtilities.invokeLater(() -> {
+                if (gen == generation) {
+                    rowCount = count;
+                    fireTableDataChanged();
+                }
+            });
+        });
+    }
+
+    public ProductDAO.SortKey getSort() {
+        return sort;
+    }
+
+    /**
+     * Returns the order a click on the column header selects, or null if it can't be sorted.
+     */
+    public ProductDAO.SortKey getSortForColumn(int column) {
+        return column >= 0 && column < COLUMN_SORTS.length ? COLUMN_SORTS[column] : null;
+    }
+
+    /**
+     * Re-orders the table; the database does the sorting, so only visible pages are read.
+     */
+    public void setSort(ProductDAO.SortKey sort) {
+        if (this.sort != sort) {
+            this.sort = sort;
+            refresh();
+        }
+    }
+
+    /**
+     * Returns the product on the given model row, or null if its page is not loaded yet.
+     */
+    public Product getProductAt(int row) {
+        int page = row / PAGE_SIZE;
+        List<Product> products = pages.get(page);
+        if (products == null) {
+            requestPage(page);
+            return null;
+        }
+
+        // Prefetch the neighbours so scrolling in either direction finds them ready
+        requestPage(page + 1);
+        if (page > 0) {
+            requestPage(page - 1);
+        }
+
+        int index = row % PAGE_SIZE;
+        return index < products.size() ? products.get(index) : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Product product = getProductAt(row);
+        if (product == null) {
+            return null;
+        }
+
+        switch (column) {
+            case 0: return product.getId();
+            case 1: return product.getName();
+            case 2: return product.getPrice();
+            case 3: return product.getStock();
+            case 4: return product.getExpiryDate() != null ? product.getExpiryDate().toString() : "";
+            case 5: return product.getCategory();
+            default: return null;
+        }
+    }
+
+    private void requestPage(int page) {
+        if (page * PAGE_SIZE >= rowCount || pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+
+        final int gen = generation;
+        final ProductDAO.SortKey pageSort = sort;
+        List<Product> previous = page > 0 ? pages.get(page - 1) : null;
+        final Product after = previous != null && previous.size() == PAGE_SIZE ? previous.get(PAGE_SIZE - 1) : null;
+        final boolean first = page == 0;
+
+        loader.execute(() -> {
+            List<Product> products = first || after != null
+                    ? productService.getProductsAfter(pageSort, after, PAGE_SIZE)
+                    : productService.getProductPage(pageSort, page * PAGE_SIZE, PAGE_SIZE);
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) {
+                    return;
+                }
+                if (products == null) {
+                    // Stay marked as loading until the retry delay is up, then repaint to ask again
+                    Timer retry = new Timer(RETRY_DELAY_MS, e -> {
+                        if (gen == generation && loading.remove(page)) {
+                            firePageUpdated(page);
+                        }
+                    });
+                    retry.setRepeats(false);
+                    retry.start();
+                    return;
+                }
+                loading.remove(page);
+                pages.put(page, products);
+                firePageUpdated(page);
+            });
+        });
+    }
+
+    private void firePageUpdated(int page) {
+        int firstRow = page * PAGE_SIZE;
+        int lastRow = Math.min(firstRow + PAGE_SIZE, rowCount) - 1;
+        if (firstRow <= lastRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+}
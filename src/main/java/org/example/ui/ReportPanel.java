@@ -1,6 +1,8 @@
 package org.example.ui;
 
-import org.example.model.Sale;
+import org.example.model.DailySalesSummary;
+import org.example.model.ProductPerformance;
+import org.example.service.ProductService;
 import org.example.service.SaleService;
 import org.example.util.Config;
 
@@ -9,14 +11,14 @@ import javax.swing.border.TitledBorder;
 import javax.swing.table.DefaultTableModel;
 import javax.swing.table.JTableHeader;
 import java.awt.*;
-import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.LongConsumer;
 
 public class ReportPanel extends JPanel {
     private JTable reportTable;
@@ -31,7 +33,15 @@ public class ReportPanel extends JPanel {
     private JTable sdgPackagingTable;
     private JTable sdgExpiryTable;
 
+    private JSpinner topNSpinner;
+    private JComboBox<String> categoryComboBox;
+
+    private JButton exportButton;
+    private JButton exportLinesButton;
+    private JProgressBar exportProgress;
+
     private SaleService saleService;
+    private ProductService productService;
     private final Color HEADER_COLOR = new Color(210, 230, 220);
     private final Font HEADER_FONT = new Font("Arial", Font.BOLD, 12);
     private final Color BUTTON_COLOR = new Color(100, 180, 140);
@@ -39,6 +49,7 @@ public class ReportPanel extends JPanel {
 
     public ReportPanel() {
         saleService = new SaleService();
+        productService = new ProductService();
 
         setLayout(new BorderLayout(10, 10));
         setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
@@ -66,7 +77,10 @@ public class ReportPanel extends JPanel {
         reportTypeComboBox = new JComboBox<>(new String[]{"Daily Sales", "Product Performance", "SDG Report"});
         reportTypeComboBox.setPreferredSize(new Dimension(150, 25));
         reportTypeComboBox.setRenderer(new CustomComboBoxRenderer());
-        reportTypeComboBox.addActionListener(e -> updateUIForReportType(reportTypeComboBox.getSelectedIndex()));
+        reportTypeComboBox.addActionListener(e -> {
+            updateUIForReportType(reportTypeComboBox.getSelectedIndex());
+            setProductFiltersEnabled(reportTypeComboBox.getSelectedIndex() == 1);
+        });
         filtersPanel.add(reportTypeComboBox);
 
         // Date range selector with improved look
@@ -84,6 +98,22 @@ public class ReportPanel extends JPanel {
         toDateSpinner.setPreferredSize(new Dimension(120, 25));
         filtersPanel.add(toDateSpinner);
 
+        // Product Performance filters
+        filtersPanel.add(new JLabel("Top:", JLabel.RIGHT));
+        topNSpinner = new JSpinner(new SpinnerNumberModel(20, 1, 1000, 5));
+        topNSpinner.setPreferredSize(new Dimension(60, 25));
+        filtersPanel.add(topNSpinner);
+
+        filtersPanel.add(new JLabel("Category:", JLabel.RIGHT));
+        categoryComboBox = new JComboBox<>();
+        categoryComboBox.addItem("All");
+        for (String category : productService.getCategories()) {
+            categoryComboBox.addItem(category);
+        }
+        categoryComboBox.setPreferredSize(new Dimension(130, 25));
+        filtersPanel.add(categoryComboBox);
+        setProductFiltersEnabled(false);
+
         // Add filters panel to main panel
         panel.add(filtersPanel);
 
@@ -115,7 +145,7 @@ public class ReportPanel extends JPanel {
         buttonPanel.add(generateButton);
 
         // Export button
-        JButton exportButton = new JButton("Export");
+        exportButton = new JButton("Export");
         exportButton.setBackground(BUTTON_COLOR);
         exportButton.setForeground(Color.BLACK);
         exportButton.setFocusPainted(false);
@@ -131,6 +161,15 @@ public class ReportPanel extends JPanel {
         });
         buttonPanel.add(exportButton);
 
+        // Line-level export of every sale in the range
+        exportLinesButton = new JButton("Export Sale Lines");
+        exportLinesButton.setBackground(BUTTON_COLOR);
+        exportLinesButton.setForeground(Color.BLACK);
+        exportLinesButton.setFocusPainted(false);
+        exportLinesButton.setFont(new Font("Arial", Font.BOLD, 12));
+        exportLinesButton.addActionListener(e -> exportSaleLines());
+        buttonPanel.add(exportLinesButton);
+
         // Refresh button
         JButton refreshButton = new JButton("Refresh");
         refreshButton.setBackground(BUTTON_COLOR);
@@ -140,6 +179,12 @@ public class ReportPanel extends JPanel {
         refreshButton.addActionListener(e -> refreshReport());
         buttonPanel.add(refreshButton);
 
+        exportProgress = new JProgressBar();
+        exportProgress.setStringPainted(true);
+        exportProgress.setPreferredSize(new Dimension(200, 25));
+        exportProgress.setVisible(false);
+        buttonPanel.add(exportProgress);
+
         panel.add(buttonPanel);
 
         return panel;
@@ -243,6 +288,14 @@ public class ReportPanel extends JPanel {
         return table;
     }
 
+    // Top-N and category only apply to the Product Performance report
+    private void setProductFiltersEnabled(boolean enabled) {
+        if (topNSpinner != null) {
+            topNSpinner.setEnabled(enabled);
+            categoryComboBox.setEnabled(enabled);
+        }
+    }
+
     private void updateUIForReportType(int reportType) {
         switch (reportType) {
             case 0: // Daily Sales
@@ -294,42 +347,19 @@ public class ReportPanel extends JPanel {
     }
 
     private void generateDailySalesReport(LocalDateTime startDate, LocalDateTime endDate) {
-        List<Sale> sales = saleService.getSalesByDateRange(startDate, endDate);
-
-        // Group sales by date
-        Map<LocalDate, DailySalesSummary> salesByDate = new HashMap<>();
-
-        for (Sale sale : sales) {
-            LocalDate saleDate = sale.getSaleDate().toLocalDate();
-
-            if (!salesByDate.containsKey(saleDate)) {
-                salesByDate.put(saleDate, new DailySalesSummary());
-            }
-
-            DailySalesSummary summary = salesByDate.get(saleDate);
-            summary.totalSales = summary.totalSales.add(sale.getTotalAmount());
-            summary.totalItems += sale.getItems().size();
-            summary.saleCount++;
-        }
+        // Read the per-day rollup instead of aggregating individual sales
+        List<DailySalesSummary> summaries = saleService.getDailySalesSummary(startDate.toLocalDate(), endDate.toLocalDate());
 
         // Format dates for better display
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("MMM dd, yyyy");
 
         // Populate table
-        for (Map.Entry<LocalDate, DailySalesSummary> entry : salesByDate.entrySet()) {
-            DailySalesSummary summary = entry.getValue();
-
+        for (DailySalesSummary summary : summaries) {
             Object[] row = new Object[4];
-            row[0] = entry.getKey().format(formatter);
-            row[1] = "$" + summary.totalSales;
-            row[2] = summary.totalItems;
-
-            if (summary.saleCount > 0) {
-                BigDecimal avgSale = summary.totalSales.divide(BigDecimal.valueOf(summary.saleCount), 2, BigDecimal.ROUND_HALF_UP);
-                row[3] = "$" + avgSale;
-            } else {
-                row[3] = "$0.00";
-            }
+            row[0] = summary.getDate().format(formatter);
+            row[1] = "$" + summary.getTotalSales();
+            row[2] = summary.getItemCount();
+            row[3] = "$" + summary.getAverageSale();
 
             tableModel.addRow(row);
         }
@@ -341,16 +371,20 @@ public class ReportPanel extends JPanel {
         // Change table columns for product report
         tableModel.setColumnIdentifiers(new String[]{"Product", "Quantity Sold", "Revenue", "% of Total"});
 
-        // Add sample data
-        Object[] row1 = {"Organic Apples (1kg)", 15, "$150.00", "30%"};
-        Object[] row2 = {"Fresh Bread", 10, "$200.00", "40%"};
-        Object[] row3 = {"Fair Trade Coffee", 8, "$80.00", "16%"};
-        Object[] row4 = {"Recycled Paper Towels", 7, "$70.00", "14%"};
+        // Aggregated, filtered and limited in the database
+        String category = categoryComboBox.getSelectedIndex() > 0 ? (String) categoryComboBox.getSelectedItem() : null;
+        int topN = (int) topNSpinner.getValue();
 
-        tableModel.addRow(row1);
-        tableModel.addRow(row2);
-        tableModel.addRow(row3);
-        tableModel.addRow(row4);
+        List<ProductPerformance> results = saleService.getProductPerformance(startDate, endDate, category, topN);
+        for (ProductPerformance performance : results) {
+            Object[] row = new Object[4];
+            row[0] = performance.getProductName();
+            row[1] = performance.getQuantitySold();
+            row[2] = "$" + performance.getRevenue();
+            row[3] = String.format("%.1f%%", performance.getPercentOfTotal());
+
+            tableModel.addRow(row);
+        }
     }
 
     private void generateSDGReport(LocalDateTime startDate, LocalDateTime endDate) {
@@ -482,17 +516,8 @@ public class ReportPanel extends JPanel {
         }
     }
 
-    // Inner class to hold daily sales summary data
-    private static class DailySalesSummary {
-        BigDecimal totalSales = BigDecimal.ZERO;
-        int totalItems = 0;
-        int saleCount = 0;
-    }
-
     // Method to export the current report to a file
     public void exportReportToFile(String filePath) {
-        // Implementation would handle exporting the current report data
-        // to CSV, PDF, or other format based on the file extension
         String fileExtension = filePath.substring(filePath.lastIndexOf('.') + 1).toLowerCase();
 
         switch (fileExtension) {
@@ -510,20 +535,122 @@ public class ReportPanel extends JPanel {
         }
     }
 
+    // Exports the selected report straight from the database, not from the table on screen
     private void exportToCSV(String filePath) {
-        // Placeholder for CSV export functionality
-        JOptionPane.showMessageDialog(this,
-                "Report exported to CSV: " + filePath,
-                "Export Successful",
-                JOptionPane.INFORMATION_MESSAGE);
+        Path file = Paths.get(filePath);
+        LocalDateTime startDateTime = selectedStartDateTime();
+        LocalDateTime endDateTime = selectedEndDateTime();
+
+        switch (reportTypeComboBox.getSelectedIndex()) {
+            case 0: // Daily Sales
+                runExport(file, -1, progress -> saleService.exportDailySalesSummary(
+                        startDateTime.toLocalDate(), endDateTime.toLocalDate(), file, progress));
+                break;
+            case 1: // Product Performance
+                String category = categoryComboBox.getSelectedIndex() > 0 ? (String) categoryComboBox.getSelectedItem() : null;
+                int topN = (int) topNSpinner.getValue();
+                runExport(file, -1, progress -> saleService.exportProductPerformance(
+                        startDateTime, endDateTime, category, topN, file, progress));
+                break;
+            default:
+                JOptionPane.showMessageDialog(this,
+                        "CSV export is not available for this report.",
+                        "Export Error",
+                        JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    // Every line item sold in the selected range
+    private void exportSaleLines() {
+        JFileChooser fileChooser = new JFileChooser();
+        fileChooser.setDialogTitle("Export Sale Lines");
+        fileChooser.setSelectedFile(new File("sale-lines.csv"));
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path file = fileChooser.getSelectedFile().toPath();
+        LocalDateTime startDateTime = selectedStartDateTime();
+        LocalDateTime endDateTime = selectedEndDateTime();
+
+        // The rollup's line counts size the progress bar without counting the lines themselves
+        long expected = saleService.countSaleLines(startDateTime.toLocalDate(), endDateTime.toLocalDate());
+        runExport(file, expected, progress -> saleService.exportSaleLines(startDateTime, endDateTime, file, progress));
     }
 
     private void exportToPDF(String filePath) {
-        // Placeholder for PDF export functionality
         JOptionPane.showMessageDialog(this,
-                "Report exported to PDF: " + filePath,
-                "Export Successful",
-                JOptionPane.INFORMATION_MESSAGE);
+                "PDF export is not available yet. Please export to .csv instead.",
+                "Export Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
+    private interface ExportTask {
+        long run(LongConsumer progress);
+    }
+
+    /**
+     * Runs an export in the background, showing rows written on the progress bar.
+     *
+     * @param expectedRows sizes the bar; negative for an indeterminate bar
+     */
+    private void runExport(Path file, long expectedRows, ExportTask task) {
+        exportButton.setEnabled(false);
+        exportLinesButton.setEnabled(false);
+        exportProgress.setIndeterminate(expectedRows <= 0);
+        exportProgress.setMaximum((int) Math.min(Math.max(expectedRows, 1), Integer.MAX_VALUE));
+        exportProgress.setValue(0);
+        exportProgress.setString("Exporting...");
+        exportProgress.setVisible(true);
+
+        new SwingWorker<Long, Long>() {
+            @Override
+            protected Long doInBackground() {
+                return task.run(this::publish);
+            }
+
+            @Override
+            protected void process(List<Long> written) {
+                long latest = written.get(written.size() - 1);
+                exportProgress.setValue((int) Math.min(latest, exportProgress.getMaximum()));
+                exportProgress.setString(latest + " rows written");
+            }
+
+            @Override
+            protected void done() {
+                exportButton.setEnabled(true);
+                exportLinesButton.setEnabled(true);
+                exportProgress.setVisible(false);
+                try {
+                    long rows = get();
+                    if (rows < 0) {
+                        JOptionPane.showMessageDialog(ReportPanel.this,
+                                "Could not export the report to " + file,
+                                "Export Error",
+                                JOptionPane.ERROR_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(ReportPanel.this,
+                                rows + " rows exported to CSV: " + file,
+                                "Export Successful",
+                                JOptionPane.INFORMATION_MESSAGE);
+                    }
+                } catch (Exception e) {
+                    JOptionPane.showMessageDialog(ReportPanel.this,
+                            "Export failed: " + e.getMessage(),
+                            "Export Error",
+                            JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }.execute();
+    }
+
+    private LocalDateTime selectedStartDateTime() {
+        java.util.Date fromDate = (java.util.Date) fromDateSpinner.getValue();
+        return LocalDateTime.of(fromDate.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate(), LocalTime.MIN);
+    }
+
+    private LocalDateTime selectedEndDateTime() {
+        java.util.Date toDate = (java.util.Date) toDateSpinner.getValue();
+        return LocalDateTime.of(toDate.toInstant().atZone(java.time.ZoneId.systemDefault()).toLocalDate(), LocalTime.MAX);
     }
 
     // Method to refresh the report with current data
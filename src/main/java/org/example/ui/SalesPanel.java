@@ -1,7 +1,9 @@
 package org.example.ui;
 
+import org.example.model.Money;
 import org.example.model.Product;
 import org.example.model.Sale;
+import org.example.model.SaleResult;
 import org.example.service.ProductService;
 import org.example.service.SaleService;
 
@@ -17,7 +19,6 @@ import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class SalesPanel extends JPanel {
     private JTable cartTable;
@@ -33,6 +34,9 @@ public class SalesPanel extends JPanel {
     private SaleService saleService;
     private ProductService productService;
     private Sale currentSale;
+    private Sale lastCompletedSale;
+    private JButton checkoutButton;
+    private JProgressBar checkoutProgressBar;
     private List<Product> allProducts;
 
     // Shop constants for receipt
@@ -42,6 +46,7 @@ public class SalesPanel extends JPanel {
     private static final String SHOP_EMAIL = "info@chakkppanstore.com";
     private static final String SHOP_WEBSITE = "www.chakkappanstores.com";
     private static final String RECEIPT_FOOTER = "Thank you for shopping with us!";
+    private static final int SEARCH_RESULT_LIMIT = 50;
     private boolean includeLogoOnReceipt = true;
     private boolean includeFooterMessage = true;
     private String customReceiptMessage = "";
@@ -265,7 +270,7 @@ public class SalesPanel extends JPanel {
         JButton newSaleButton = new JButton("New Sale");
         styleButton(newSaleButton, new Color(108, 117, 125), Color.BLACK);
 
-        JButton checkoutButton = new JButton("Checkout");
+        checkoutButton = new JButton("Checkout");
         styleButton(checkoutButton, new Color(0, 123, 255), Color.BLACK);
 
         JButton printReceiptButton = new JButton("Print Receipt");
@@ -274,10 +279,23 @@ public class SalesPanel extends JPanel {
         JButton customizedReceiptButton = new JButton("Customize Receipt");
         styleButton(customizedReceiptButton, new Color(108, 117, 125), Color.BLACK);
 
+        checkoutProgressBar = new JProgressBar();
+        checkoutProgressBar.setIndeterminate(true);
+        checkoutProgressBar.setStringPainted(true);
+        checkoutProgressBar.setVisible(false);
+
         JButton refreshButton = new JButton("Refresh");
         styleButton(refreshButton, new Color(23, 162, 184), Color.BLACK);
         refreshButton.setToolTipText("Refresh product list and panel");
-        refreshButton.addActionListener(e -> refreshPanel());
+        refreshButton.addActionListener(e -> {
+            // Pick up changes made from other tills
+            if (!productService.reloadCatalog()) {
+                JOptionPane.showMessageDialog(this,
+                        "Could not reload products from the database. Showing the last loaded products.",
+                        "Refresh Failed", JOptionPane.WARNING_MESSAGE);
+            }
+            refreshPanel();
+        });
         buttonsPanel.add(refreshButton);
 
 
@@ -291,6 +309,7 @@ public class SalesPanel extends JPanel {
         buttonsPanel.add(checkoutButton);
         buttonsPanel.add(customizedReceiptButton,2);
         buttonsPanel.add(printReceiptButton);
+        buttonsPanel.add(checkoutProgressBar);
 
         // Combine panels
         panel.add(paymentPanel, BorderLayout.WEST);
@@ -303,28 +322,27 @@ public class SalesPanel extends JPanel {
 
     private void applyDiscount() {
         try {
-            double discountValue = Double.parseDouble(discountField.getText().trim());
+            BigDecimal discountValue = new BigDecimal(discountField.getText().trim());
             String discountType = (String) discountTypeComboBox.getSelectedItem();
 
-            if (discountValue < 0) {
+            if (discountValue.signum() < 0) {
                 JOptionPane.showMessageDialog(this, "Discount cannot be negative!", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
 
-            if (discountType.startsWith("Percent") && discountValue > 100) {
+            if (discountType.startsWith("Percent") && discountValue.compareTo(BigDecimal.valueOf(100)) > 0) {
                 JOptionPane.showMessageDialog(this, "Percentage discount cannot exceed 100%!", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
 
-            BigDecimal originalTotal = currentSale.calculateRawTotal();
-            double discountAmount;
+            Money originalTotal = currentSale.calculateRawTotal();
+            Money discountAmount;
 
             if (discountType.startsWith("Percent")) {
-                discountAmount = originalTotal.multiply(
-                        BigDecimal.valueOf(discountValue / 100.0)).doubleValue();
+                discountAmount = originalTotal.percent(discountValue);
             } else {
-                discountAmount = discountValue;
-                if (discountAmount > originalTotal.doubleValue()) {
+                discountAmount = Money.of(discountValue);
+                if (discountAmount.isGreaterThan(originalTotal)) {
                     JOptionPane.showMessageDialog(this, "Discount amount cannot exceed total!",
                             "Error", JOptionPane.ERROR_MESSAGE);
                     return;
@@ -341,20 +359,15 @@ public class SalesPanel extends JPanel {
     }
 
     private void filterProducts() {
-        String searchText = searchField.getText().trim().toLowerCase();
+        String searchText = searchField.getText().trim();
 
-        // Filter products based on search text using streams
+        // Look the search text up in the product search index
         List<Product> filteredProducts;
 
         if (searchText.isEmpty()) {
             filteredProducts = allProducts; // Show all products when search is empty
         } else {
-            filteredProducts = allProducts.stream()
-                    .filter(product ->
-                            product.getName().toLowerCase().contains(searchText) ||
-                                    (product.getDescription() != null &&
-                                            product.getDescription().toLowerCase().contains(searchText)))
-                    .collect(Collectors.toList());
+            filteredProducts = productService.searchProducts(searchText, SEARCH_RESULT_LIMIT);
         }
 
         // Update the combo box with filtered products
@@ -408,7 +421,10 @@ public class SalesPanel extends JPanel {
         int quantity = (int) quantitySpinner.getValue();
 
         if (selectedProduct != null && quantity > 0) {
-            if (selectedProduct.getStock() < quantity) {
+            // Repeat adds merge into the product's cart line, so check against the combined quantity
+            Sale.SaleItem line = currentSale.getItemForProduct(selectedProduct.getId());
+            int inCart = line != null ? line.getQuantity() : 0;
+            if (selectedProduct.getStock() < inCart + quantity) {
                 JOptionPane.showMessageDialog(this, "Not enough stock available!", "Error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
@@ -428,7 +444,7 @@ public class SalesPanel extends JPanel {
     private void removeFromCart() {
         int selectedRow = cartTable.getSelectedRow();
         if (selectedRow != -1 && selectedRow < currentSale.getItems().size()) {
-            currentSale.getItems().remove(selectedRow);
+            currentSale.removeItem(selectedRow);
             updateCartTable();
         }
     }
@@ -438,7 +454,7 @@ public class SalesPanel extends JPanel {
                 "Are you sure you want to clear the cart?",
                 "Confirm", JOptionPane.YES_NO_OPTION);
         if(confirm == JOptionPane.YES_OPTION){
-          currentSale.getItems().clear();
+          currentSale.clearItems();
           updateCartTable();
         }
     }
@@ -449,7 +465,7 @@ public class SalesPanel extends JPanel {
             Sale.SaleItem item = currentSale.getItems().get(selectedRow);
 
             SpinnerNumberModel spinnerModel = new SpinnerNumberModel(
-                    item.getQuantity(), 1, 100, 1);
+                    item.getQuantity(), 1, Math.max(100, item.getQuantity()), 1);
             JSpinner quantitySpinner = new JSpinner(spinnerModel);
 
             JPanel panel = new JPanel(new GridLayout(2, 2, 5, 5));
@@ -472,7 +488,7 @@ public class SalesPanel extends JPanel {
                     return;
                 }
 
-                item.setQuantity(newQuantity);
+                currentSale.setItemQuantity(selectedRow, newQuantity);
                 updateCartTable();
             }
 
@@ -533,40 +549,73 @@ public class SalesPanel extends JPanel {
 
             currentSale.setPaymentMethod(selectedPaymentMethod);
 
-            boolean success = saleService.processSale(currentSale);
+            // Commit in the background and start the next basket straight away
+            Sale submittedSale = currentSale;
+            currentSale = saleService.createNewSale();
+            updateCartTable();
+            searchField.setText("");
 
-            if (success) {
-                JOptionPane.showMessageDialog(this, "Sale completed successfully!");
+            checkoutButton.setEnabled(false);
+            checkoutProgressBar.setVisible(true);
+            checkoutProgressBar.setString("Saving sale...");
 
-                // Enable print receipt button
-                JButton printReceiptButton = findPrintReceiptButton();
-                if (printReceiptButton != null) {
-                    printReceiptButton.setEnabled(true);
-                }
+            saleService.processSaleAsync(submittedSale).thenAccept(result ->
+                    SwingUtilities.invokeLater(() -> onCheckoutComplete(result)));
+        }
+    }
 
-                // Offer to print receipt
-                int printConfirm = JOptionPane.showConfirmDialog(this,
-                        "Would you like to print the receipt?",
-                        "Print Receipt",
-                        JOptionPane.YES_NO_OPTION);
+    // Runs on the EDT once the background commit has finished
+    private void onCheckoutComplete(SaleResult result) {
+        checkoutButton.setEnabled(true);
+        checkoutProgressBar.setVisible(false);
 
-                if (printConfirm == JOptionPane.YES_OPTION) {
-                    printReceipt();
-                }
+        if (result.isSuccess()) {
+            lastCompletedSale = result.getSale();
 
-                // Create new sale after printing option
-                currentSale = saleService.createNewSale();
-                updateCartTable();
+            // Enable print receipt button
+            JButton printReceiptButton = findPrintReceiptButton();
+            if (printReceiptButton != null) {
+                printReceiptButton.setEnabled(true);
+            }
 
-                // Refresh product list to reflect updated stock
-                allProducts = productService.getAllProducts();
-                searchField.setText("");
+            // Refresh product list to reflect updated stock
+            allProducts = productService.getAllProducts();
+            if (searchField.getText().trim().isEmpty()) {
                 populateProductComboBox(allProducts);
+            }
+
+            // Offer to print receipt
+            int printConfirm = JOptionPane.showConfirmDialog(this,
+                    "Sale completed successfully!\nWould you like to print the receipt?",
+                    "Print Receipt",
+                    JOptionPane.YES_NO_OPTION);
+
+            if (printConfirm == JOptionPane.YES_OPTION) {
+                printReceipt();
+            }
+        } else {
+            String message;
+            if (!result.getFailedItems().isEmpty()) {
+                StringBuilder sb = new StringBuilder("Not enough stock for:");
+                for (Sale.SaleItem item : result.getFailedItems()) {
+                    sb.append("\n- ").append(item.getProductName())
+                            .append(" (qty ").append(item.getQuantity()).append(")");
+                }
+                message = sb.toString();
             } else {
-                JOptionPane.showMessageDialog(this, "Sale processing failed!", "Error", JOptionPane.ERROR_MESSAGE);
+                message = "Sale processing failed!";
+            }
+
+            // Give the failed basket back to the cashier if they haven't started a new one
+            if (currentSale.getItems().isEmpty()) {
+                currentSale = result.getSale();
+                updateCartTable();
+                message += "\nThe cart has been restored.";
             }
+            JOptionPane.showMessageDialog(this, message, "Error", JOptionPane.ERROR_MESSAGE);
         }
     }
+
     private boolean confirmPayment(String paymentMethod) {
         String message = "Has the payment of $" + currentSale.getTotalAmount() +
                 " been received via " + paymentMethod + "?";
@@ -601,7 +650,9 @@ public class SalesPanel extends JPanel {
 
     private void printReceipt() {
         PrinterJob job = PrinterJob.getPrinterJob();
-        job.setPrintable(new ReceiptPrintable(currentSale));
+        // After checkout the cart already holds the next basket, so print the sale just completed
+        Sale receiptSale = lastCompletedSale != null ? lastCompletedSale : currentSale;
+        job.setPrintable(new ReceiptPrintable(receiptSale));
 
         if (job.printDialog()) {
             try {
@@ -774,7 +825,9 @@ public class SalesPanel extends JPanel {
             g2d.drawString(dateStr, 10, y);
             y += lineHeight;
 
-            String transactionId = "Transaction ID: " + sale.getId();
+            // Journaled sales get their database id later; print the journal reference instead
+            String transactionId = "Transaction ID: " +
+                    (sale.getId() == 0 && sale.getJournalId() != null ? sale.getJournalId() : String.valueOf(sale.getId()));
             g2d.drawString(transactionId, 10, y);
             y += lineHeight * 2;
 
@@ -1,14 +1,58 @@
 package org.example.util;
 
 public class Config {
-    public static final String DB_URL = "jdbc:mysql://localhost:3306/pos_db";
+    public static final String DB_URL = "jdbc:mysql://localhost:3306/pos_db?useServerPrepStmts=true&useCursorFetch=true&rewriteBatchedStatements=true";
     public static final String DB_USER = "root";
     public static final String DB_PASSWORD = "sjmtechcorp"; // Change this to your actual MySQL password
 
+    // Connection pool configuration
+    public static final int DB_POOL_MIN_IDLE = 2;
+    public static final int DB_POOL_MAX_SIZE = 10;
+    public static final long DB_POOL_IDLE_TIMEOUT_MS = 5 * 60 * 1000;
+    public static final long DB_POOL_ACQUIRE_TIMEOUT_MS = 5000;
+    public static final long DB_POOL_LEAK_THRESHOLD_MS = 60 * 1000; // 0 disables leak detection
+    public static final boolean DB_POOL_LEAK_TRACE = false; // Record where each leaked connection was borrowed; allocates a stack trace per borrow
+    public static final int DB_POOL_VALIDATION_TIMEOUT_SECONDS = 2;
+    public static final int DB_STATEMENT_CACHE_SIZE = 64; // Prepared statements kept per connection, 0 disables
+    public static final int SALES_STREAM_FETCH_SIZE = 500; // Rows per cursor fetch when streaming sales history
+    public static final int SCHEMA_LOCK_TIMEOUT_SECONDS = 60; // How long a starting till waits for another to finish migrating
+
+    // Bulk product import and export
+    public static final int PRODUCT_IMPORT_BATCH_SIZE = 1000; // Rows per batched insert, each committed on its own
+    public static final int PRODUCT_EXPORT_PAGE_SIZE = 1000; // Rows read per keyset page while exporting
+    public static final long PRODUCT_CATALOG_RETRY_MS = 5000; // Wait after a failed catalog load before reads try again
+
+    // Report workers: long ranges are split into partitions aggregated concurrently, each on its own connection
+    public static final int REPORT_THREADS = 4;
+    public static final int REPORT_PARTITION_DAYS = 7;
+    public static final int REPORT_CACHE_MAX_DAYS = 3660; // Cached daily rollup rows
+    public static final int REPORT_CACHE_MAX_PRODUCT_TOTALS = 200_000; // Per-product rows across all cached partitions
+    public static final long REPORT_CACHE_OPEN_DAY_TTL_MS = 60 * 1000; // Today's figures are re-read after this
+    public static final long REPORT_CACHE_CLOSED_DAY_TTL_MS = 15 * 60 * 1000; // Past days, for sales other tills replay late
+
+    // Checkout workers
+    public static final int CHECKOUT_THREADS = 2;
+    public static final int CHECKOUT_QUEUE_CAPACITY = 32;
+
+    // Local sales journal: checkouts are made durable on disk and written to MySQL in the background
+    public static final boolean ENABLE_SALES_JOURNAL = true;
+    public static final String SALES_JOURNAL_PATH = "data/sales.journal";
+    public static final int SALES_JOURNAL_SIZE_BYTES = 16 * 1024 * 1024;
+    public static final long SALES_JOURNAL_RETRY_MS = 2000;
+
+    // Metrics: latency and throughput, served for Prometheus at http://<till>:METRICS_HTTP_PORT/metrics
+    public static final boolean ENABLE_METRICS_ENDPOINT = true;
+    public static final int METRICS_HTTP_PORT = 9464;
+    // Loopback only unless set, e.g. -Dpos.metrics.bind=0.0.0.0 for a Prometheus on another machine
+    public static final String METRICS_BIND_ADDRESS = System.getProperty("pos.metrics.bind", "");
+    public static final int METRICS_WINDOW_SECONDS = 60; // Percentiles cover the last one to two windows
+    public static final String TILL_ID = System.getProperty("pos.till", "till-1"); // Set per till with -Dpos.till=...
+
     // Application configuration
     public static final String APP_NAME = "Retail POS System";
     public static final String APP_VERSION = "1.0";
 
     // Feature flags
     public static final boolean ENABLE_EXPIRY_TRACKING = true;
+    public static final int EXPIRY_WARNING_DAYS = 30; // Products expiring sooner than this are flagged
 }
@@ -0,0 +1,135 @@
+package org.example.util;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming CSV parser over a memory-mapped file.
+ *
+ * The file is mapped a window at a time and parsed byte by byte, so reading costs no
+ * copies through a Reader and memory stays flat however large the file is. Understands
+ * RFC 4180 quoting (quoted fields may contain commas, quotes as "" and line breaks),
+ * CRLF or LF line endings and a leading UTF-8 byte order mark.
+ */
+public class CsvReader {
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Receives each record in file order.
+     */
+    public interface RowHandler {
+        /**
+         * @param lineNumber the 1-based line the record starts on
+         * @param fields     the record's fields; the list is not reused
+         * @return false to stop reading
+         */
+        boolean row(long lineNumber, List<String> fields);
+    }
+
+    private byte[] field = new byte[256];
+    private int fieldLength = 0;
+
+    public static void read(Path path, RowHandler handler) throws IOException {
+        new CsvReader().parse(path, handler);
+    }
+
+    private void parse(Path path, RowHandler handler) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            List<String> fields = new ArrayList<>();
+            boolean inQuotes = false;
+            boolean quoteSeen = false; // Previous byte closed a quoted section, or is the first of ""
+            boolean recordHasData = false;
+            long line = 1;
+            long recordLine = 1;
+
+            for (long offset = 0; offset < size; offset += WINDOW_SIZE) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(WINDOW_SIZE, size - offset));
+                if (offset == 0) {
+                    skipByteOrderMark(buffer);
+                }
+
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+
+                    if (inQuotes) {
+                        if (b == '"') {
+                            inQuotes = false;
+                            quoteSeen = true;
+                        } else {
+                            if (b == '\n') {
+                                line++;
+                            }
+                            append(b);
+                        }
+                        continue;
+                    }
+
+                    if (b == '"') {
+                        if (quoteSeen) {
+                            append((byte) '"'); // "" inside a quoted field
+                        }
+                        inQuotes = true;
+                        quoteSeen = false;
+                        recordHasData = true;
+                        continue;
+                    }
+                    quoteSeen = false;
+
+                    if (b == ',') {
+                        fields.add(takeField());
+                        recordHasData = true;
+                    } else if (b == '\n') {
+                        if (recordHasData || fieldLength > 0) {
+                            fields.add(takeField());
+                            if (!handler.row(recordLine, fields)) {
+                                return;
+                            }
+                            fields = new ArrayList<>();
+                        }
+                        recordHasData = false;
+                        line++;
+                        recordLine = line;
+                    } else if (b != '\r') {
+                        append(b);
+                        recordHasData = true;
+                    }
+                }
+            }
+
+            // Last record without a trailing newline
+            if (recordHasData || fieldLength > 0) {
+                fields.add(takeField());
+                handler.row(recordLine, fields);
+            }
+        }
+    }
+
+    private static void skipByteOrderMark(MappedByteBuffer buffer) {
+        if (buffer.remaining() >= 3 && (buffer.get(0) & 0xFF) == 0xEF
+                && (buffer.get(1) & 0xFF) == 0xBB && (buffer.get(2) & 0xFF) == 0xBF) {
+            buffer.position(3);
+        }
+    }
+
+    private void append(byte b) {
+        if (fieldLength == field.length) {
+            field = Arrays.copyOf(field, field.length * 2);
+        }
+        field[fieldLength++] = b;
+    }
+
+    private String takeField() {
+        String value = new String(field, 0, fieldLength, StandardCharsets.UTF_8);
+        fieldLength = 0;
+        return value;
+    }
+}
@@ -0,0 +1,136 @@
+package org.example.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Buffered CSV writer on a file channel.
+ *
+ * Rows are built in one reusable StringBuilder and encoded into a fixed direct buffer
+ * that is written out whenever it fills, so exporting any number of rows uses the same
+ * small amount of memory. Fields are quoted only when they contain a comma, quote or
+ * line break.
+ */
+public class CsvWriter implements Closeable {
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final StringBuilder row = new StringBuilder(256);
+    private boolean firstField = true;
+    private long rowCount = 0;
+
+    public CsvWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public CsvWriter field(String value) {
+        separate();
+        if (value != null) {
+            if (needsQuotes(value)) {
+                row.append('"');
+                for (int i = 0; i < value.length(); i++) {
+                    char c = value.charAt(i);
+                    if (c == '"') {
+                        row.append('"');
+                    }
+                    row.append(c);
+                }
+                row.append('"');
+            } else {
+                row.append(value);
+            }
+        }
+        return this;
+    }
+
+    public CsvWriter field(long value) {
+        separate();
+        row.append(value);
+        return this;
+    }
+
+    public CsvWriter field(Object value) {
+        return field(value != null ? value.toString() : null);
+    }
+
+    /**
+     * Writes a whole row of fields.
+     */
+    public void writeRow(String... values) throws IOException {
+        for (String value : values) {
+            field(value);
+        }
+        endRow();
+    }
+
+    /**
+     * Ends the current row and hands it to the output buffer.
+     */
+    public void endRow() throws IOException {
+        row.append("\r\n");
+        CharBuffer chars = CharBuffer.wrap(row);
+        while (true) {
+            CoderResult result = encoder.encode(chars, buffer, false);
+            if (result.isOverflow()) {
+                drain();
+            } else if (result.isUnderflow()) {
+                break;
+            } else {
+                result.throwException();
+            }
+        }
+        row.setLength(0);
+        firstField = true;
+        rowCount++;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+            channel.force(false);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void separate() {
+        if (!firstField) {
+            row.append(',');
+        }
+        firstField = false;
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,45 +1,151 @@
 package org.example.util;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToDoubleFunction;
 
 public class DatabaseUtil {
-    private static Connection connection = null;
+    private static volatile ConnectionPool pool = null;
+    private static String url = Config.DB_URL;
+    private static String user = Config.DB_USER;
+    private static String password = Config.DB_PASSWORD;
+    private static final AtomicLong closedPoolTimeouts = new AtomicLong(); // Carried over from pools shut down
 
+    static {
+        poolGauge("pos_db_pool_active_connections", "Connections currently lent out", ConnectionPool::getActiveConnections);
+        poolGauge("pos_db_pool_idle_connections", "Open connections waiting in the pool", ConnectionPool::getIdleConnections);
+        poolGauge("pos_db_pool_waiting_threads", "Threads waiting for a connection", ConnectionPool::getWaitingThreads);
+        poolGauge("pos_db_statement_cache_hit_ratio", "Share of prepared statements served from the cache",
+                p -> p.getStatementCacheStats().getHitRatio());
+        Metrics.functionCounter("pos_db_pool_timeouts_total", "Connection requests that timed out", () -> {
+            ConnectionPool current = pool;
+            return closedPoolTimeouts.get() + (current != null ? current.getTimeoutCount() : 0);
+        });
+    }
+
+    /**
+     * Points the pool at a different database, e.g. an embedded one for benchmarks.
+     * Any existing pool is shut down.
+     */
+    public static void configure(String dbUrl, String dbUser, String dbPassword) {
+        synchronized (DatabaseUtil.class) {
+            closeConnection();
+            url = dbUrl;
+            user = dbUser;
+            password = dbPassword;
+        }
+    }
+
+    /**
+     * Borrows a connection from the shared pool. Closing the returned connection
+     * gives it back to the pool rather than closing the physical connection.
+     */
     public static Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            try {
-                connection = DriverManager.getConnection(
-                        Config.DB_URL,
-                        Config.DB_USER,
-                        Config.DB_PASSWORD
-                );
-            } catch (SQLException e) {
-                System.err.println("Database connection error: " + e.getMessage());
-                throw e;
+        return borrow(null);
+    }
+
+    /**
+     * Borrows a connection as {@link #getConnection()} does, and records how long it is held
+     * under the method's name in {@link Metrics#DB_CALLS}.
+     *
+     * @param method the borrowing DAO method, e.g. "ProductDAO.getProductById"
+     */
+    public static Connection getConnection(String method) throws SQLException {
+        return borrow(Metrics.timer(Metrics.DB_CALLS, method));
+    }
+
+    /**
+     * As {@link #getConnection(String)}, for methods that hand each row to a caller's visitor
+     * while holding the connection. The loan then includes the caller's work, so it is
+     * recorded in {@link Metrics#DB_STREAMS} instead.
+     */
+    public static Connection getStreamingConnection(String method) throws SQLException {
+        return borrow(Metrics.timer(Metrics.DB_STREAMS, method));
+    }
+
+    private static Connection borrow(LatencyHistogram loanTimer) throws SQLException {
+        try {
+            return getPool().getConnection(loanTimer);
+        } catch (SQLException e) {
+            System.err.println("Database connection error: " + e.getMessage());
+            throw e;
+        }
+    }
+
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DatabaseUtil.class) {
+                current = pool;
+                if (current == null) {
+                    current = new ConnectionPool(
+                            url,
+                            user,
+                            password,
+                            Config.DB_POOL_MIN_IDLE,
+                            Config.DB_POOL_MAX_SIZE,
+                            Config.DB_POOL_IDLE_TIMEOUT_MS,
+                            Config.DB_POOL_ACQUIRE_TIMEOUT_MS,
+                            Config.DB_POOL_LEAK_THRESHOLD_MS,
+                            Config.DB_POOL_LEAK_TRACE,
+                            Config.DB_POOL_VALIDATION_TIMEOUT_SECONDS,
+                            Config.DB_STATEMENT_CACHE_SIZE
+                    );
+                    pool = current;
+                }
             }
         }
-        return connection;
+        return current;
+    }
+
+    // Reads the current pool when scraped, without starting one
+    private static void poolGauge(String name, String help, ToDoubleFunction<ConnectionPool> value) {
+        Metrics.gauge(name, help, () -> {
+            ConnectionPool current = pool;
+            return current != null ? value.applyAsDouble(current) : 0;
+        });
     }
 
     public static void closeConnection() {
-        if (connection != null) {
-            try {
-                connection.close();
-            } catch (SQLException e) {
-                System.err.println("Error closing connection: " + e.getMessage());
+        synchronized (DatabaseUtil.class) {
+            if (pool != null) {
+                closedPoolTimeouts.addAndGet(pool.getTimeoutCount());
+                pool.shutdown();
+                pool = null;
             }
         }
     }
 
+    /**
+     * Whether the failure is worth retrying: a lost or unavailable connection, a pool
+     * timeout, or a transaction rolled back by a deadlock or lock wait timeout.
+     */
+    public static boolean isTransient(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientException || t instanceof SQLRecoverableException) {
+                return true;
+            }
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                // 08: connection exception, 40: transaction rollback; 1205 is MySQL's lock wait timeout
+                if (state != null && (state.startsWith("08") || state.startsWith("40"))
+                        || ((SQLException) t).getErrorCode() == 1205) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Tests the database connection.
      * @return true if connection is successful, false otherwise
      */
     public static boolean testConnection() {
-        try {
-            Connection testConn = getConnection();
+        try (Connection testConn = getConnection()) {
             boolean isValid = testConn != null && !testConn.isClosed() && testConn.isValid(5);
             return isValid;
         } catch (SQLException e) {
@@ -47,4 +153,4 @@ public class DatabaseUtil {
             return false;
         }
     }
-}
\ No newline at end of file
+}
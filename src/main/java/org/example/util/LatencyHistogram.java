@@ -0,0 +1,105 @@
+package org.example.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets.
+ *
+ * Each power of two of microseconds is split into eight buckets, so any reported percentile
+ * is within 12.5% of the true value, and recording is a bucket index computation plus one
+ * atomic increment. Percentiles cover the current and the previous window (see
+ * {@link #rotate()}), so they describe the last minute or two rather than all time; the
+ * count and sum are cumulative.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 36; // About 19 hours in microseconds
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+    private static final long MAX_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+
+    private final AtomicLongArray[] windows = {new AtomicLongArray(BUCKETS), new AtomicLongArray(BUCKETS)};
+    private volatile int current = 0;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+
+    public void record(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1000, 0), MAX_MICROS);
+        windows[current].incrementAndGet(index(micros));
+        count.increment();
+        sumMicros.add(micros);
+    }
+
+    /**
+     * Records the time elapsed since {@code startNanos}, a {@link System#nanoTime()} reading.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSumSeconds() {
+        return sumMicros.sum() / 1_000_000.0;
+    }
+
+    /**
+     * Returns the given percentile (0 to 100) of recent latencies in seconds, as the upper
+     * bound of the bucket it falls in, or 0 if nothing was recorded recently.
+     */
+    public double getPercentileSeconds(double percentile) {
+        AtomicLongArray a = windows[0];
+        AtomicLongArray b = windows[1];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += a.get(i) + b.get(i);
+        }
+        if (total == 0) {
+            return 0.0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += a.get(i) + b.get(i);
+            if (seen >= rank) {
+                return upperBoundMicros(i) / 1_000_000.0;
+            }
+        }
+        return upperBoundMicros(BUCKETS - 1) / 1_000_000.0;
+    }
+
+    /**
+     * Starts a new window, forgetting the one before the current. Called periodically by
+     * {@link Metrics}.
+     */
+    void rotate() {
+        int next = 1 - current;
+        AtomicLongArray window = windows[next];
+        for (int i = 0; i < BUCKETS; i++) {
+            window.set(i, 0);
+        }
+        current = next;
+    }
+
+    static int index(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int sub = (int) (micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+    }
+
+    static long upperBoundMicros(int index) {
+        if (index < SUB_BUCKETS) {
+            return index + 1;
+        }
+        int exponent = (index - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+        int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub + 1) << (exponent - SUB_BITS);
+    }
+}
@@ -0,0 +1,218 @@
+package org.example.util;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process metrics registry: counters, gauges and latency timers, rendered in the
+ * Prometheus text format by {@link #scrape()}.
+ *
+ * Every series carries a {@code till} label ({@link Config#TILL_ID}) so several tills can
+ * be scraped into one Prometheus. Timers are grouped in families and labelled by
+ * {@code method}, e.g. {@code pos_service_call_seconds{method="SaleService.processSale"}};
+ * the {@link #DB_CALLS} family is filled by the connection pool, which times each loan made
+ * through {@link DatabaseUtil#getConnection(String)} against the DAO method named there.
+ * Loans that stream rows to a caller's visitor also include the caller's work, such as
+ * writing an export file, so they are kept apart in {@link #DB_STREAMS}.
+ */
+public final class Metrics {
+    public static final String SERVICE_CALLS = "pos_service_call_seconds";
+    public static final String DB_CALLS = "pos_db_call_seconds";
+    public static final String DB_STREAMS = "pos_db_stream_seconds";
+
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private static final Map<String, String> TIMER_HELP = new ConcurrentHashMap<>();
+
+    static {
+        TIMER_HELP.put(SERVICE_CALLS, "Latency of service calls");
+        TIMER_HELP.put(DB_CALLS, "Time DAO methods hold a database connection, including the wait for one");
+        TIMER_HELP.put(DB_STREAMS, "Time streaming DAO methods hold a database connection, including the caller's work per row");
+    }
+
+    /**
+     * A monotonically increasing count.
+     */
+    public static final class Counter {
+        private final LongAdder value = new LongAdder();
+
+        public void increment() {
+            value.increment();
+        }
+
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        public long get() {
+            return value.sum();
+        }
+    }
+
+    private static final class Family {
+        final String help;
+        final String type;
+        // Series by label value (the method, for timers; "" for unlabelled metrics)
+        final Map<String, Object> series = new ConcurrentSkipListMap<>();
+
+        Family(String help, String type) {
+            this.help = help;
+            this.type = type;
+        }
+    }
+
+    private static final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    private static final ScheduledExecutorService windowRotator = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "metrics-window");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        windowRotator.scheduleAtFixedRate(Metrics::rotateWindows,
+                Config.METRICS_WINDOW_SECONDS, Config.METRICS_WINDOW_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private Metrics() {
+    }
+
+    public static Counter counter(String name, String help) {
+        Family family = families.computeIfAbsent(name, n -> new Family(help, "counter"));
+        return (Counter) family.series.computeIfAbsent("", k -> new Counter());
+    }
+
+    /**
+     * Registers a counter kept elsewhere and read when scraped; the value must never
+     * decrease. Registering the same name again replaces it.
+     */
+    public static void functionCounter(String name, String help, DoubleSupplier value) {
+        families.computeIfAbsent(name, n -> new Family(help, "counter")).series.put("", value);
+    }
+
+    /**
+     * Registers a gauge read when scraped. Registering the same name again replaces it.
+     */
+    public static void gauge(String name, String help, DoubleSupplier value) {
+        families.computeIfAbsent(name, n -> new Family(help, "gauge")).series.put("", value);
+    }
+
+    /**
+     * Returns the timer for the method in the given family, creating it on first use.
+     */
+    public static LatencyHistogram timer(String family, String method) {
+        Family timers = families.computeIfAbsent(family,
+                n -> new Family(TIMER_HELP.getOrDefault(n, "Latency"), "summary"));
+        return (LatencyHistogram) timers.series.computeIfAbsent(method, k -> new LatencyHistogram());
+    }
+
+    /**
+     * Runs the call and records how long it took in the {@link #SERVICE_CALLS} timer for the
+     * method, whether it returns or throws.
+     *
+     * @param method the timed method, e.g. "SaleService.processSale"
+     */
+    public static <T> T time(String method, Supplier<T> call) {
+        LatencyHistogram timer = timer(SERVICE_CALLS, method);
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            timer.recordSince(start);
+        }
+    }
+
+    /**
+     * As {@link #time(String, Supplier)}, for calls that return nothing.
+     */
+    public static void time(String method, Runnable call) {
+        LatencyHistogram timer = timer(SERVICE_CALLS, method);
+        long start = System.nanoTime();
+        try {
+            call.run();
+        } finally {
+            timer.recordSince(start);
+        }
+    }
+
+    /**
+     * Returns the timer if anything has created it, otherwise null.
+     */
+    public static LatencyHistogram findTimer(String family, String method) {
+        Family timers = families.get(family);
+        return timers != null ? (LatencyHistogram) timers.series.get(method) : null;
+    }
+
+    /**
+     * Renders every metric in the Prometheus text exposition format.
+     */
+    public static String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        String till = "till=\"" + escape(Config.TILL_ID) + "\"";
+
+        for (Map.Entry<String, Family> entry : families.entrySet()) {
+            String name = entry.getKey();
+            Family family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.type).append('\n');
+
+            for (Map.Entry<String, Object> series : family.series.entrySet()) {
+                Object metric = series.getValue();
+                if (metric instanceof LatencyHistogram) {
+                    LatencyHistogram histogram = (LatencyHistogram) metric;
+                    String labels = till + ",method=\"" + escape(series.getKey()) + "\"";
+                    for (double quantile : QUANTILES) {
+                        sample(out, name, labels + ",quantile=\"" + quantile + "\"",
+                                histogram.getPercentileSeconds(quantile * 100));
+                    }
+                    sample(out, name + "_sum", labels, histogram.getSumSeconds());
+                    sample(out, name + "_count", labels, histogram.getCount());
+                } else if (metric instanceof Counter) {
+                    sample(out, name, till, ((Counter) metric).get());
+                } else {
+                    double value;
+                    try {
+                        value = ((DoubleSupplier) metric).getAsDouble();
+                    } catch (RuntimeException e) {
+                        value = Double.NaN;
+                    }
+                    sample(out, name, till, value);
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append('{').append(labels).append("} ");
+        if (Double.isNaN(value)) {
+            out.append("NaN");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static void rotateWindows() {
+        for (Family family : families.values()) {
+            for (Object metric : family.series.values()) {
+                if (metric instanceof LatencyHistogram) {
+                    ((LatencyHistogram) metric).rotate();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package org.example.util;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves {@link Metrics#scrape()} at {@code /metrics} on the JDK's built-in HTTP server,
+ * for Prometheus to scrape. The endpoint has no authentication, so it listens on the
+ * loopback interface unless given another address.
+ */
+public final class MetricsServer {
+    private static HttpServer server;
+
+    private MetricsServer() {
+    }
+
+    /**
+     * @param bindAddress the address to listen on, or empty for the loopback interface
+     */
+    public static synchronized void start(String bindAddress, int port) {
+        if (server != null) {
+            return;
+        }
+        try {
+            InetAddress address = bindAddress.isEmpty()
+                    ? InetAddress.getLoopbackAddress()
+                    : InetAddress.getByName(bindAddress);
+            HttpServer created = HttpServer.create(new InetSocketAddress(address, port), 0);
+            created.createContext("/metrics", MetricsServer::handle);
+            created.setExecutor(Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "metrics-http");
+                t.setDaemon(true);
+                return t;
+            }));
+            created.start();
+            server = created;
+            System.out.println("Metrics available at http://" + hostForUrl(address) + ":" + port + "/metrics");
+        } catch (IOException e) {
+            System.err.println("Metrics endpoint disabled: " + e.getMessage());
+        }
+    }
+
+    public static synchronized void stop() {
+        if (server != null) {
+            server.stop(0);
+            server = null;
+        }
+    }
+
+    private static String hostForUrl(InetAddress address) {
+        if (address.isAnyLocalAddress() || address.isLoopbackAddress()) {
+            return "localhost";
+        }
+        String host = address.getHostAddress();
+        return host.indexOf(':') >= 0 ? "[" + host + "]" : host;
+    }
+
+    private static void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = Metrics.scrape().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+}
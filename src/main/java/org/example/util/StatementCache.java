@@ -0,0 +1,263 @@
+package org.example.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of prepared statements for one physical connection, keyed by SQL text.
+ *
+ * Statements are handed out as proxies whose {@code close()} clears parameters, restores
+ * any fetch size, row limit or timeout the caller changed, and parks the statement back
+ * in the cache, so DAO code that prepares and closes the same SQL on every call reuses one
+ * server-side prepared statement without inheriting the previous caller's settings.
+ */
+public class StatementCache {
+    private final Connection physical;
+    private final int maxSize;
+    private final Stats stats;
+    private final LinkedHashMap<String, CachedStatement> statements;
+
+    public StatementCache(Connection physical, int maxSize, Stats stats) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.stats = stats;
+        this.statements = new LinkedHashMap<String, CachedStatement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    stats.evictions.incrementAndGet();
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached statement for the given SQL, preparing it on a miss.
+     *
+     * @param owner the connection handed to the caller, returned from {@code getConnection()}
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}
+     */
+    public synchronized PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+        String key = autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K:" + sql : "N:" + sql;
+
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            stats.hits.incrementAndGet();
+        } else if (cached != null) {
+            // Same SQL already open on this connection (nested use); don't share it
+            stats.misses.incrementAndGet();
+            return physical.prepareStatement(sql, autoGeneratedKeys);
+        } else {
+            stats.misses.incrementAndGet();
+            cached = new CachedStatement(physical.prepareStatement(sql, autoGeneratedKeys));
+            if (maxSize > 0) {
+                statements.put(key, cached);
+            } else {
+                cached.evicted = true;
+            }
+        }
+
+        cached.inUse = true;
+        return (PreparedStatement) Proxy.newProxyInstance(
+                StatementCache.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new LeaseHandler(owner, cached));
+    }
+
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * Closes every cached statement. Called before the physical connection is closed.
+     */
+    public synchronized void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.evict();
+        }
+        statements.clear();
+    }
+
+    private synchronized void discard(CachedStatement cached) {
+        statements.values().remove(cached);
+        cached.evict();
+    }
+
+    /**
+     * Hit/miss counters, shared by all connections of a pool.
+     */
+    public static class Stats {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+
+        public long getHits() { return hits.get(); }
+        public long getMisses() { return misses.get(); }
+        public long getEvictions() { return evictions.get(); }
+
+        public double getHitRatio() {
+            long total = hits.get() + misses.get();
+            return total == 0 ? 0.0 : (double) hits.get() / total;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("statements[hits=%d, misses=%d, evictions=%d, hitRatio=%.1f%%]",
+                    getHits(), getMisses(), getEvictions(), getHitRatio() * 100);
+        }
+    }
+
+    private static class CachedStatement {
+        final PreparedStatement statement;
+        boolean inUse;
+        boolean evicted;
+        // Driver defaults, read when the settings are first changed
+        boolean defaultsRead;
+        int defaultFetchSize;
+        int defaultMaxRows;
+        int defaultQueryTimeout;
+
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+        }
+
+        void readDefaults() throws SQLException {
+            if (!defaultsRead) {
+                defaultFetchSize = statement.getFetchSize();
+                defaultMaxRows = statement.getMaxRows();
+                defaultQueryTimeout = statement.getQueryTimeout();
+                defaultsRead = true;
+            }
+        }
+
+        void restoreDefaults() throws SQLException {
+            statement.setMaxRows(defaultMaxRows); // First; a driver may reject a fetch size above the row limit
+            statement.setFetchSize(defaultFetchSize);
+            statement.setQueryTimeout(defaultQueryTimeout);
+        }
+
+        // Closes now if idle, otherwise when the current lease ends
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing cached statement: " + e.getMessage());
+            }
+        }
+    }
+
+    private class LeaseHandler implements InvocationHandler {
+        private final Connection owner;
+        private final CachedStatement cached;
+        private final List<ResultSet> openResults = new ArrayList<>();
+        private boolean closed = false;
+        private boolean settingsChanged = false;
+
+        LeaseHandler(Connection owner, CachedStatement cached) {
+            this.owner = owner;
+            this.cached = cached;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        endLease();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.statement + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+
+            switch (method.getName()) {
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setLargeMaxRows":
+                case "setQueryTimeout":
+                    cached.readDefaults();
+                    settingsChanged = true;
+                    break;
+                default:
+                    break;
+            }
+
+            Object result;
+            try {
+                result = method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (result instanceof ResultSet) {
+                openResults.add((ResultSet) result);
+            }
+            return result;
+        }
+
+        private void endLease() {
+            boolean reusable = true;
+            try {
+                for (ResultSet rs : openResults) {
+                    if (!rs.isClosed()) {
+                        rs.close();
+                    }
+                }
+                cached.statement.clearParameters();
+                cached.statement.clearBatch();
+                if (settingsChanged) {
+                    cached.restoreDefaults();
+                }
+            } catch (SQLException e) {
+                reusable = false;
+            }
+            openResults.clear();
+
+            synchronized (StatementCache.this) {
+                cached.inUse = false;
+                if (!reusable) {
+                    discard(cached);
+                } else if (cached.evicted) {
+                    cached.closeQuietly();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.example.util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The current local date, cached along with the wall-clock interval it covers.
+ *
+ * Expiry checks run for every table row and list cell that is painted; comparing
+ * {@link System#currentTimeMillis()} against the cached day's bounds there avoids a
+ * time-zone conversion per call. Because every read checks the wall clock, the date stays
+ * right across midnight, a suspend, or a clock change. Code that keeps date-dependent state
+ * can register a rollover listener instead of polling; listeners are notified from a
+ * background thread within {@link #CHECK_INTERVAL_SECONDS} of the change, or sooner if a
+ * read notices it first.
+ */
+public final class Today {
+    private static final long CHECK_INTERVAL_SECONDS = 30;
+
+    private static final List<Runnable> rolloverListeners = new CopyOnWriteArrayList<>();
+    private static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "today-rollover");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static volatile Day day = Day.containing(System.currentTimeMillis());
+
+    static {
+        timer.scheduleWithFixedDelay(Today::current, CHECK_INTERVAL_SECONDS, CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private Today() {}
+
+    public static LocalDate get() {
+        return current().date;
+    }
+
+    public static long epochDay() {
+        return current().epochDay;
+    }
+
+    /**
+     * Runs the listener on the rollover thread each time the date changes.
+     */
+    public static void addRolloverListener(Runnable listener) {
+        rolloverListeners.add(listener);
+    }
+
+    public static void removeRolloverListener(Runnable listener) {
+        rolloverListeners.remove(listener);
+    }
+
+    private static Day current() {
+        Day cached = day;
+        long now = System.currentTimeMillis();
+        if (now < cached.startMillis || now >= cached.endMillis) {
+            return advance();
+        }
+        return cached;
+    }
+
+    private static synchronized Day advance() {
+        Day previous = day;
+        long now = System.currentTimeMillis();
+        if (now >= previous.startMillis && now < previous.endMillis) {
+            return previous; // Another thread got here first
+        }
+        Day next = Day.containing(now);
+        day = next;
+        if (!next.date.equals(previous.date)) {
+            // Never on the caller's thread, which may be painting
+            timer.execute(Today::notifyListeners);
+        }
+        return next;
+    }
+
+    private static void notifyListeners() {
+        for (Runnable listener : rolloverListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                System.err.println("Error in date rollover listener: " + e.getMessage());
+            }
+        }
+    }
+
+    // A local date and the wall-clock milliseconds it spans, which DST can make other than 24 hours
+    private static final class Day {
+        final LocalDate date;
+        final long epochDay;
+        final long startMillis;
+        final long endMillis;
+
+        private Day(LocalDate date, ZoneId zone) {
+            this.date = date;
+            this.epochDay = date.toEpochDay();
+            this.startMillis = date.atStartOfDay(zone).toInstant().toEpochMilli();
+            this.endMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+
+        static Day containing(long millis) {
+            ZoneId zone = ZoneId.systemDefault();
+            return new Day(Instant.ofEpochMilli(millis).atZone(zone).toLocalDate(), zone);
+        }
+    }
+}
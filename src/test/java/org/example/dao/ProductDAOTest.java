@@ -0,0 +1,107 @@
+package org.example.dao;
+
+import org.example.model.Product;
+import org.example.util.DatabaseUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+class ProductDAOTest {
+    private static final int PRODUCTS = 23;
+    private static final int PAGE_SIZE = 4;
+
+    private final ProductDAO productDAO = new ProductDAO();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DatabaseUtil.configure("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new SchemaMigrator().migrate();
+        // Few distinct values per column, so every sort order has ties spanning page boundaries,
+        // and every third product has no expiry date
+        StringBuilder sql = new StringBuilder("INSERT INTO products (id, name, price, stock, expiry_date, category) VALUES ");
+        for (int i = 1; i <= PRODUCTS; i++) {
+            int id = (i * 7) % PRODUCTS + 1;
+            String expiry = i % 3 == 0 ? "NULL" : "'2024-03-0" + (i % 4 + 1) + "'";
+            sql.append(i > 1 ? ", " : "")
+                    .append("(").append(id).append(", 'Product ").append((char) ('A' + i % 5)).append("', ")
+                    .append(i % 4).append(".50, ").append(i % 3).append(", ").append(expiry).append(", 'General')");
+        }
+        execute(sql.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        DatabaseUtil.closeConnection();
+    }
+
+    @Test
+    void keysetPagesMatchOffsetPagesForEverySortOrder() {
+        for (ProductDAO.SortKey sort : ProductDAO.SortKey.values()) {
+            List<Integer> byOffset = new ArrayList<>();
+            for (int offset = 0; ; offset += PAGE_SIZE) {
+                List<Product> page = productDAO.getProductsPage(sort, offset, PAGE_SIZE);
+                assertNotNull(page, sort.name());
+                page.forEach(product -> byOffset.add(product.getId()));
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+            }
+
+            List<Integer> byKeyset = new ArrayList<>();
+            Product last = null;
+            while (true) {
+                // Only the sort column is fetched, as the seek must work from it and the id alone
+                List<Product> page = productDAO.getProductsAfter(sort, last, PAGE_SIZE,
+                        EnumSet.noneOf(ProductDAO.Column.class));
+                assertNotNull(page, sort.name());
+                page.forEach(product -> byKeyset.add(product.getId()));
+                if (page.size() < PAGE_SIZE) {
+                    break;
+                }
+                last = page.get(page.size() - 1);
+            }
+
+            assertEquals(PRODUCTS, byOffset.size(), sort.name());
+            assertEquals(byOffset, byKeyset, sort.name());
+        }
+    }
+
+    @Test
+    void walkingByIdReadsEveryProductOnceInOrder() {
+        List<Integer> ids = new ArrayList<>();
+        int afterId = 0;
+        List<Product> page;
+        do {
+            page = productDAO.getProductsAfterId(afterId, PAGE_SIZE);
+            assertNotNull(page);
+            for (Product product : page) {
+                ids.add(product.getId());
+                afterId = product.getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 1; id <= PRODUCTS; id++) {
+            expected.add(id);
+        }
+        assertEquals(expected, ids);
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
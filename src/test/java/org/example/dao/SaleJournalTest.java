@@ -0,0 +1,292 @@
+package org.example.dao;
+
+import org.example.model.Money;
+import org.example.model.Sale;
+import org.example.model.SaleResult;
+import org.example.util.DatabaseUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+class SaleJournalTest {
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final int CAPACITY = 64 * 1024;
+
+    @TempDir
+    Path dir;
+
+    private Path path;
+    private SaleJournal journal;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        DatabaseUtil.configure("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new SchemaMigrator().migrate();
+        execute("INSERT INTO products (id, name, price, stock) VALUES (1, 'Milk', 1.50, 10), (2, 'Bread', 2.00, 1)");
+        path = dir.resolve("sales.journal");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (journal != null) {
+            journal.close();
+        }
+        DatabaseUtil.closeConnection();
+    }
+
+    @Test
+    void replaysAppendedSalesIntoTheDatabase() throws Exception {
+        journal = open(CAPACITY);
+        assertTrue(journal.append(sale(1, 2)));
+        assertTrue(journal.append(sale(1, 3)));
+        assertEquals(2, journal.getPendingCount());
+
+        journal.startDrainer();
+        await(() -> journal.getPendingCount() == 0);
+
+        assertEquals(2, count("SELECT COUNT(*) FROM sales"));
+        assertEquals(5, count("SELECT stock FROM products WHERE id = 1"));
+    }
+
+    @Test
+    void recoveryStopsAtATornRecordAndAppendsOverIt() throws Exception {
+        journal = open(CAPACITY);
+        journal.append(sale(1, 1));
+        journal.append(sale(1, 1));
+        journal.close();
+
+        // Damage the second record's payload, as if the process died while writing it
+        int second = HEADER_SIZE + RECORD_HEADER_SIZE + readInt(HEADER_SIZE + 8);
+        writeByte(second + RECORD_HEADER_SIZE + 2, (byte) ~readByte(second + RECORD_HEADER_SIZE + 2));
+
+        journal = open(CAPACITY);
+        assertEquals(1, journal.getPendingCount());
+        journal.append(sale(1, 4));
+        assertEquals(2, journal.getPendingCount());
+
+        journal.startDrainer();
+        await(() -> journal.getPendingCount() == 0);
+        assertEquals(2, count("SELECT COUNT(*) FROM sales"));
+        assertEquals(5, count("SELECT stock FROM products WHERE id = 1"));
+    }
+
+    @Test
+    void drainedJournalRewindsToANewEpoch() throws Exception {
+        int recordSize = RECORD_HEADER_SIZE + payloadSize();
+        journal = open(HEADER_SIZE + 3 * recordSize);
+        journal.startDrainer();
+        for (int i = 0; i < 7; i++) {
+            assertTrue(journal.append(sale(1, 1)), "append " + i);
+            await(() -> journal.getPendingCount() == 0);
+        }
+        journal.close();
+
+        // Records left over from earlier epochs must not be taken for pending ones
+        journal = open(HEADER_SIZE + 3 * recordSize);
+        assertEquals(0, journal.getPendingCount());
+        assertEquals(7, count("SELECT COUNT(*) FROM sales"));
+        assertEquals(3, count("SELECT stock FROM products WHERE id = 1"));
+    }
+
+    @Test
+    void fullJournalRefusesAppendsUntilDrained() throws Exception {
+        int recordSize = RECORD_HEADER_SIZE + payloadSize();
+        journal = open(HEADER_SIZE + 2 * recordSize);
+        assertTrue(journal.append(sale(1, 1)));
+        assertTrue(journal.append(sale(1, 1)));
+        assertTrue(!journal.append(sale(1, 1)));
+    }
+
+    @Test
+    void replayingAnAppliedRecordAgainIsHarmless() throws Exception {
+        journal = open(CAPACITY);
+        journal.append(sale(1, 2));
+        journal.startDrainer();
+        await(() -> journal.getPendingCount() == 0);
+        journal.close();
+
+        // Roll the drained checkpoint back, as after a crash before it reached the disk
+        writeInt(16, HEADER_SIZE);
+
+        journal = open(CAPACITY);
+        assertEquals(1, journal.getPendingCount());
+        journal.startDrainer();
+        await(() -> journal.getPendingCount() == 0);
+
+        assertEquals(1, count("SELECT COUNT(*) FROM sales"));
+        assertEquals(8, count("SELECT stock FROM products WHERE id = 1"));
+    }
+
+    @Test
+    void paidSaleIsRecordedEvenWhenItOversellsAndTheShortfallIsAudited() throws Exception {
+        journal = open(CAPACITY);
+        List<SaleResult> oversells = new CopyOnWriteArrayList<>();
+        journal.setOversellListener(oversells::add);
+        Sale oversold = sale(2, 2);
+        journal.append(sale(2, 1));
+        journal.append(oversold);
+        journal.append(sale(1, 1));
+
+        journal.startDrainer();
+        await(() -> journal.getPendingCount() == 0);
+
+        assertEquals(3, count("SELECT COUNT(*) FROM sales"));
+        assertEquals(3, count("SELECT sale_count FROM daily_sales_summary"));
+        assertEquals(-2, count("SELECT stock FROM products WHERE id = 2"));
+        assertEquals(9, count("SELECT stock FROM products WHERE id = 1"));
+        assertEquals(0, journal.getRejectedCount());
+
+        assertEquals(1, count("SELECT COUNT(*) FROM stock_oversells"));
+        assertEquals(-2, count("SELECT stock_after FROM stock_oversells WHERE product_id = 2 AND quantity = 2"));
+        assertEquals(1, count("SELECT COUNT(*) FROM stock_oversells o JOIN sale_journal_applied a " +
+                "ON a.sale_id = o.sale_id AND a.journal_id = o.journal_id " +
+                "WHERE o.journal_id = '" + oversold.getJournalId() + "'"));
+        await(() -> oversells.size() == 1);
+        assertEquals(oversold.getJournalId(), oversells.get(0).getSale().getJournalId());
+        assertEquals(2, oversells.get(0).getOversoldItems().get(0).getProductId());
+    }
+
+    @Test
+    void unreadableRecordIsSetAsideWithoutBlockingLaterSales() throws Exception {
+        journal = open(CAPACITY);
+        journal.append(sale(1, 1));
+        journal.append(sale(1, 2));
+        journal.close();
+
+        // A record whose checksum holds but whose payload does not decode: the journal id's
+        // length prefix now runs past the end of the payload
+        int length = readInt(HEADER_SIZE + 8);
+        writeByte(HEADER_SIZE + RECORD_HEADER_SIZE, (byte) 0x7F);
+        byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = readByte(HEADER_SIZE + RECORD_HEADER_SIZE + i);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        writeInt(HEADER_SIZE + 12, (int) crc.getValue());
+
+        journal = open(CAPACITY);
+        assertEquals(2, journal.getPendingCount());
+        journal.startDrainer();
+        await(() -> journal.getPendingCount() == 0);
+
+        assertEquals(1, count("SELECT COUNT(*) FROM sales"));
+        assertEquals(8, count("SELECT stock FROM products WHERE id = 1"));
+        assertEquals(1, journal.getRejectedCount());
+
+        List<String> rejected = Files.readAllLines(journal.getRejectedPath());
+        assertEquals(1, rejected.size());
+        String[] fields = rejected.get(0).split("\t");
+        assertEquals(5, fields.length);
+        assertTrue(fields[2].startsWith("Unreadable record"), fields[2]);
+        assertEquals("SAL2", fields[3]);
+    }
+
+    private SaleJournal open(int capacity) throws IOException {
+        return SaleJournal.open(path, capacity, new SaleDAO(), 20);
+    }
+
+    private static Sale sale(int productId, int quantity) {
+        Sale sale = new Sale();
+        sale.setJournalId(UUID.randomUUID().toString());
+        sale.setUserId(1);
+        sale.setSaleDate(LocalDateTime.of(2026, 1, 15, 10, 30));
+        sale.addItem(new Sale.SaleItem(productId, "Product " + productId, quantity, Money.ofCents(150)));
+        return sale;
+    }
+
+    // Every sale built by sale() encodes to the same size
+    private int payloadSize() throws IOException {
+        Path probe = dir.resolve("probe.journal");
+        SaleJournal probeJournal = SaleJournal.open(probe, CAPACITY, new SaleDAO(), 20);
+        try {
+            probeJournal.append(sale(1, 1));
+        } finally {
+            probeJournal.close();
+        }
+        try (FileChannel channel = FileChannel.open(probe, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            channel.read(buffer, HEADER_SIZE + 8);
+            return buffer.getInt(0);
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for the journal to drain");
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private static int count(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private int readInt(int position) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            channel.read(buffer, position);
+            return buffer.getInt(0);
+        }
+    }
+
+    private void writeInt(int position, int value) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(4);
+            buffer.putInt(0, value);
+            channel.write(buffer, position);
+        }
+    }
+
+    private byte readByte(int position) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, position);
+            return buffer.get(0);
+        }
+    }
+
+    private void writeByte(int position, byte value) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{value}), position);
+        }
+    }
+}
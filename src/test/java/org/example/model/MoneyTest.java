@@ -0,0 +1,77 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MoneyTest {
+
+    @Test
+    void percentRoundsHalfUpToTheCent() {
+        assertEquals(Money.ofCents(125), Money.ofCents(1250).percent(new BigDecimal("10")));
+        // 12.5% of 1.00 is 12.5 cents
+        assertEquals(Money.ofCents(13), Money.ofCents(100).percent(new BigDecimal("12.5")));
+        assertEquals(Money.ofCents(1), Money.ofCents(101).percent(new BigDecimal("0.5")));
+        // 2.3% of 15.00 is exactly 34.5 cents; the double product comes out just below and rounds to 34
+        assertEquals(Money.ofCents(35), Money.ofCents(1500).percent(new BigDecimal("2.3")));
+        assertEquals(Money.ofCents(0), Money.ofCents(99).percent(new BigDecimal("0.5")));
+        assertEquals(Money.ofCents(1005), Money.ofCents(2010).percent(new BigDecimal("50")));
+    }
+
+    @Test
+    void percentIsExactForLargeAmounts() {
+        long cents = 9_007_199_254_740_993L; // Not representable as a double
+        assertEquals(Money.ofCents(cents), Money.ofCents(cents).percent(new BigDecimal("100")));
+        assertEquals(Money.ofCents(900_719_925_474_099L), Money.ofCents(cents).percent(new BigDecimal("10")));
+    }
+
+    @Test
+    void percentOfNegativeAmountRoundsAwayFromZero() {
+        assertEquals(Money.ofCents(-13), Money.ofCents(-100).percent(new BigDecimal("12.5")));
+        assertEquals(Money.ofCents(-12), Money.ofCents(-100).percent(new BigDecimal("12.4")));
+    }
+
+    @Test
+    void dividedByRoundsHalfUp() {
+        assertEquals(Money.ofCents(33), Money.ofCents(100).dividedBy(3));
+        assertEquals(Money.ofCents(67), Money.ofCents(200).dividedBy(3));
+        assertEquals(Money.ofCents(2), Money.ofCents(3).dividedBy(2));
+        assertEquals(Money.ofCents(1), Money.ofCents(5).dividedBy(4));
+        assertEquals(Money.ofCents(-2), Money.ofCents(-3).dividedBy(2));
+        assertEquals(Money.ofCents(-2), Money.ofCents(3).dividedBy(-2));
+        assertEquals(Money.ofCents(2), Money.ofCents(-3).dividedBy(-2));
+    }
+
+    @Test
+    void arithmeticOnNegativeAmounts() {
+        Money refund = Money.ofCents(-250);
+        assertEquals(Money.ofCents(-150), refund.plus(Money.ofCents(100)));
+        assertEquals(Money.ofCents(-350), refund.minus(Money.ofCents(100)));
+        assertEquals(Money.ofCents(-750), refund.times(3));
+        assertEquals(Money.ofCents(100), refund.max(Money.ofCents(100)));
+        assertEquals(true, refund.isNegative());
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MAX_VALUE).plus(Money.ofCents(1)));
+    }
+
+    @Test
+    void toStringHasTwoDecimals() {
+        assertEquals("0.00", Money.ZERO.toString());
+        assertEquals("0.05", Money.ofCents(5).toString());
+        assertEquals("12.50", Money.ofCents(1250).toString());
+        assertEquals("-0.05", Money.ofCents(-5).toString());
+        assertEquals("-12.34", Money.ofCents(-1234).toString());
+    }
+
+    @Test
+    void conversionsRoundHalfUpAndSmallValuesAreShared() {
+        assertEquals(Money.ofCents(1235), Money.of(new BigDecimal("12.345")));
+        assertEquals(Money.ofCents(-1235), Money.of(new BigDecimal("-12.345")));
+        assertEquals(Money.ofCents(300), Money.parse(" 3 "));
+        assertEquals(new BigDecimal("12.50"), Money.ofCents(1250).toBigDecimal());
+        assertSame(Money.ofCents(42), Money.ofCents(42));
+    }
+}
@@ -0,0 +1,37 @@
+package org.example.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SaleTest {
+
+    @Test
+    void loadedTotalSurvivesLoadingTheLines() {
+        // Stored with a 1.00 discount, which is not stored with the sale itself
+        Sale sale = new Sale();
+        sale.setTotalAmount(Money.ofCents(400));
+        sale.addItem(new Sale.SaleItem(1, "Milk", 2, Money.ofCents(150)));
+        sale.addItem(new Sale.SaleItem(2, "Bread", 1, Money.ofCents(200)));
+
+        assertEquals(Money.ofCents(400), sale.getTotalAmount());
+        assertEquals(Money.ofCents(500), sale.calculateRawTotal());
+
+        // Lines loaded first keep the total too
+        Sale linesFirst = new Sale();
+        linesFirst.addItem(new Sale.SaleItem(1, "Milk", 2, Money.ofCents(150)));
+        linesFirst.setTotalAmount(Money.ofCents(250));
+        assertEquals(Money.ofCents(250), linesFirst.getTotalAmount());
+    }
+
+    @Test
+    void cartChangeReplacesTheLoadedTotal() {
+        Sale sale = new Sale();
+        sale.setTotalAmount(Money.ofCents(400));
+        sale.addItem(new Sale.SaleItem(1, "Milk", 2, Money.ofCents(150)));
+
+        sale.addItem(new Product(1, "Milk", Money.ofCents(150), 10, null, "Dairy"), 1);
+
+        assertEquals(Money.ofCents(450), sale.getTotalAmount());
+    }
+}
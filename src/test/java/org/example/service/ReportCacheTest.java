@@ -0,0 +1,99 @@
+package org.example.service;
+
+import org.example.model.DailySalesSummary;
+import org.example.model.Money;
+import org.example.model.ProductPerformance;
+import org.example.util.Config;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReportCacheTest {
+    private static final LocalDate MONDAY = LocalDate.of(2024, 3, 4);
+
+    private final ReportCache cache = new ReportCache();
+
+    @Test
+    void partitionsAreEvictedByTheProductRowsTheyHold() {
+        int rows = Config.REPORT_CACHE_MAX_PRODUCT_TOTALS / 3;
+        put(0, rows);
+        put(1, rows);
+        put(2, rows);
+        // Touch the first so the second is the least recently used
+        assertNotNull(get(0));
+
+        put(3, rows);
+
+        assertNotNull(get(0));
+        assertNull(get(1));
+        assertNotNull(get(2));
+        assertNotNull(get(3));
+    }
+
+    @Test
+    void removedPartitionsNoLongerCountTowardsTheLimit() {
+        int rows = Config.REPORT_CACHE_MAX_PRODUCT_TOTALS / 2;
+        put(0, rows);
+        put(1, rows);
+        cache.saleRecorded(start(0).plusHours(12));
+        // Replacing a partition must not count it twice either
+        put(1, rows);
+
+        put(2, rows);
+
+        assertNull(get(0));
+        assertNotNull(get(1));
+        assertNotNull(get(2));
+    }
+
+    @Test
+    void partitionLargerThanTheLimitIsNotCached() {
+        put(0, 1);
+        put(1, Config.REPORT_CACHE_MAX_PRODUCT_TOTALS + 1);
+
+        assertNotNull(get(0));
+        assertNull(get(1));
+    }
+
+    @Test
+    void daysAreEvictedLeastRecentlyUsedFirst() {
+        LocalDate first = MONDAY.minusDays(Config.REPORT_CACHE_MAX_DAYS);
+        cache.putDays(first, MONDAY.minusDays(1), Collections.<LocalDate, DailySalesSummary>emptyMap(), cache.getVersion());
+        assertNotNull(cache.getDay(first));
+
+        cache.putDays(MONDAY, MONDAY, Collections.<LocalDate, DailySalesSummary>emptyMap(), cache.getVersion());
+
+        assertNotNull(cache.getDay(first));
+        assertNull(cache.getDay(first.plusDays(1)));
+        assertEquals(0, cache.getDay(MONDAY).getSaleCount());
+    }
+
+    private void put(int partition, int rows) {
+        Map<Integer, ProductPerformance> totals = new HashMap<>();
+        for (int id = 0; id < rows; id++) {
+            totals.put(id, new ProductPerformance(id, "Product " + (id % 10), "General", 1, Money.ofCents(100), 0.0));
+        }
+        cache.putProductTotals(start(partition), end(partition), null, totals, cache.getVersion());
+    }
+
+    private Map<Integer, ProductPerformance> get(int partition) {
+        return cache.getProductTotals(start(partition), end(partition), null);
+    }
+
+    private static LocalDateTime start(int partition) {
+        return MONDAY.plusDays(7L * partition).atStartOfDay();
+    }
+
+    private static LocalDateTime end(int partition) {
+        return LocalDateTime.of(MONDAY.plusDays(7L * partition + 6), LocalTime.MAX);
+    }
+}
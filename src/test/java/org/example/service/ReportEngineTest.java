@@ -0,0 +1,149 @@
+package org.example.service;
+
+import org.example.dao.SaleDAO;
+import org.example.dao.SchemaMigrator;
+import org.example.model.ProductPerformance;
+import org.example.util.Config;
+import org.example.util.DatabaseUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportEngineTest {
+    private static final int DAYS = Config.REPORT_PARTITION_DAYS;
+
+    @AfterEach
+    void tearDown() {
+        DatabaseUtil.closeConnection();
+    }
+
+    @Test
+    void rangeWithinOneBlockIsOnePartition() {
+        LocalDate blockStart = blockStart(LocalDate.of(2024, 3, 10));
+        LocalDateTime start = blockStart.plusDays(1).atTime(9, 30);
+        LocalDateTime end = blockStart.plusDays(DAYS - 1).atTime(17, 0);
+
+        List<LocalDateTime[]> partitions = ReportEngine.partition(start, end);
+
+        assertEquals(1, partitions.size());
+        assertEquals(start, partitions.get(0)[0]);
+        assertEquals(end, partitions.get(0)[1]);
+    }
+
+    @Test
+    void partitionsFollowFixedBlocksAndKeepTheRangeEnds() {
+        LocalDate blockStart = blockStart(LocalDate.of(2024, 3, 10));
+        LocalDateTime start = blockStart.plusDays(2).atTime(9, 30);
+        LocalDateTime end = blockStart.plusDays(2 * DAYS + 1).atTime(12, 0);
+
+        List<LocalDateTime[]> partitions = ReportEngine.partition(start, end);
+
+        assertEquals(3, partitions.size());
+        assertEquals(start, partitions.get(0)[0]);
+        assertEquals(LocalDateTime.of(blockStart.plusDays(DAYS - 1), LocalTime.MAX), partitions.get(0)[1]);
+        assertEquals(blockStart.plusDays(DAYS).atStartOfDay(), partitions.get(1)[0]);
+        assertEquals(LocalDateTime.of(blockStart.plusDays(2 * DAYS - 1), LocalTime.MAX), partitions.get(1)[1]);
+        assertEquals(blockStart.plusDays(2 * DAYS).atStartOfDay(), partitions.get(2)[0]);
+        assertEquals(end, partitions.get(2)[1]);
+    }
+
+    @Test
+    void overlappingRangesShareTheirInnerPartitions() {
+        LocalDate blockStart = blockStart(LocalDate.of(2024, 3, 10));
+        List<LocalDateTime[]> a = ReportEngine.partition(blockStart.plusDays(1).atStartOfDay(),
+                blockStart.plusDays(3 * DAYS).atStartOfDay());
+        List<LocalDateTime[]> b = ReportEngine.partition(blockStart.plusDays(3).atStartOfDay(),
+                blockStart.plusDays(3 * DAYS + 2).atStartOfDay());
+
+        assertEquals(a.get(1)[0], b.get(1)[0]);
+        assertEquals(a.get(1)[1], b.get(1)[1]);
+        assertEquals(a.get(2)[0], b.get(2)[0]);
+        assertEquals(a.get(2)[1], b.get(2)[1]);
+    }
+
+    @Test
+    void partitionsAlignBeforeTheEpoch() {
+        LocalDate blockStart = blockStart(LocalDate.of(1969, 12, 30));
+        List<LocalDateTime[]> partitions = ReportEngine.partition(LocalDate.of(1969, 12, 30).atStartOfDay(),
+                LocalDate.of(1970, 1, 20).atStartOfDay());
+
+        assertEquals(LocalDateTime.of(blockStart.plusDays(DAYS - 1), LocalTime.MAX), partitions.get(0)[1]);
+        for (int i = 1; i < partitions.size(); i++) {
+            assertEquals(0, Math.floorMod(partitions.get(i)[0].toLocalDate().toEpochDay(), DAYS));
+            assertEquals(partitions.get(i - 1)[1].toLocalDate().plusDays(1), partitions.get(i)[0].toLocalDate());
+        }
+    }
+
+    @Test
+    void onlyRangesLongerThanAPartitionAreSplit() {
+        LocalDateTime start = LocalDate.of(2024, 3, 1).atTime(23, 0);
+        assertFalse(ReportEngine.isLongRange(start, start));
+        assertFalse(ReportEngine.isLongRange(start, start.plusDays(DAYS - 1).with(LocalTime.MAX)));
+        assertTrue(ReportEngine.isLongRange(start, start.plusDays(DAYS)));
+    }
+
+    @Test
+    void partitionedReportMatchesTheSingleQuery() throws SQLException {
+        DatabaseUtil.configure("jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        new SchemaMigrator().migrate();
+        execute("INSERT INTO products (id, name, price, stock, category) VALUES " +
+                "(1, 'Milk', 1.50, 100, 'Dairy'), (2, 'Bread', 2.00, 100, 'Bakery'), (3, 'Cheese', 4.25, 100, 'Dairy')");
+        LocalDate first = LocalDate.of(2024, 3, 1);
+        for (int day = 0; day < 4 * DAYS; day++) {
+            String date = first.plusDays(day).atTime(10, 0).toString().replace('T', ' ');
+            execute("INSERT INTO sales (id, user_id, total_amount, sale_date) VALUES (" + (day + 1) + ", 1, 0, '" + date + "')");
+            execute("INSERT INTO sale_items (sale_id, product_id, quantity, unit_price) VALUES " +
+                    "(" + (day + 1) + ", 1, " + (day % 3 + 1) + ", 1.50), " +
+                    "(" + (day + 1) + ", " + (day % 2 + 2) + ", 1, " + (day % 2 == 0 ? "2.00" : "4.25") + ")");
+        }
+
+        SaleDAO saleDAO = new SaleDAO();
+        ReportEngine engine = new ReportEngine(saleDAO, new ReportCache());
+        LocalDateTime start = first.plusDays(2).atStartOfDay();
+        LocalDateTime end = first.plusDays(3 * DAYS).atTime(LocalTime.MAX);
+
+        for (String category : new String[]{null, "Dairy"}) {
+            for (int limit : new int[]{0, 2}) {
+                List<ProductPerformance> expected = saleDAO.getProductPerformance(start, end, category, limit);
+                // Twice, so the second run is served from the cached partitions
+                assertSameReport(expected, engine.getProductPerformance(start, end, category, limit));
+                assertSameReport(expected, engine.getProductPerformance(start, end, category, limit));
+            }
+        }
+    }
+
+    private static void assertSameReport(List<ProductPerformance> expected, List<ProductPerformance> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            ProductPerformance e = expected.get(i);
+            ProductPerformance a = actual.get(i);
+            assertEquals(e.getProductId(), a.getProductId());
+            assertEquals(e.getQuantitySold(), a.getQuantitySold());
+            assertEquals(e.getRevenue(), a.getRevenue());
+            assertEquals(e.getPercentOfTotal(), a.getPercentOfTotal(), 1e-9);
+        }
+    }
+
+    private static LocalDate blockStart(LocalDate day) {
+        return LocalDate.ofEpochDay(day.toEpochDay() - Math.floorMod(day.toEpochDay(), DAYS));
+    }
+
+    private static void execute(String sql) throws SQLException {
+        try (Connection conn = DatabaseUtil.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvReaderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void quotedFieldsKeepCommasAndEscapedQuotes() throws IOException {
+        List<List<String>> rows = readAll("id,name,note\n1,\"Milk, 1L\",\"say \"\"hi\"\"\"\n2,\"\",\"\"\"\"\n");
+
+        assertEquals(Arrays.asList(
+                Arrays.asList("id", "name", "note"),
+                Arrays.asList("1", "Milk, 1L", "say \"hi\""),
+                Arrays.asList("2", "", "\"")), rows);
+    }
+
+    @Test
+    void lineBreakInsideQuotesStaysInTheFieldAndLinesAreStillCounted() throws IOException {
+        List<Long> lines = new ArrayList<>();
+        List<List<String>> rows = new ArrayList<>();
+        CsvReader.read(write("a,\"two\nlines\"\nb,\"three\n\nlines\"\nc,x\n"), (line, fields) -> {
+            lines.add(line);
+            rows.add(fields);
+            return true;
+        });
+
+        assertEquals(Arrays.asList(1L, 3L, 6L), lines);
+        assertEquals(Arrays.asList("a", "two\nlines"), rows.get(0));
+        assertEquals(Arrays.asList("b", "three\n\nlines"), rows.get(1));
+        assertEquals(Arrays.asList("c", "x"), rows.get(2));
+    }
+
+    @Test
+    void crlfLineEndingsAreStripped() throws IOException {
+        assertEquals(Arrays.asList(
+                Arrays.asList("a", "b"),
+                Arrays.asList("c", "d")), readAll("a,b\r\nc,d\r\n"));
+    }
+
+    @Test
+    void byteOrderMarkIsSkipped() throws IOException {
+        assertEquals(Arrays.asList(
+                Arrays.asList("id", "name"),
+                Arrays.asList("1", "Café")), readAll("\uFEFFid,name\n1,Café\n"));
+    }
+
+    @Test
+    void emptyFieldsAndBlankLines() throws IOException {
+        assertEquals(Arrays.asList(
+                Arrays.asList("a", "", "b"),
+                Arrays.asList("", ""),
+                Arrays.asList("c", "")), readAll("a,,b\n,\n\nc,\n"));
+    }
+
+    @Test
+    void lastRecordWithoutTrailingNewlineIsRead() throws IOException {
+        assertEquals(Arrays.asList(
+                Arrays.asList("a", "b"),
+                Arrays.asList("c", "d")), readAll("a,b\nc,d"));
+        assertEquals(Arrays.asList(Arrays.asList("a", "quoted")), readAll("a,\"quoted\""));
+    }
+
+    @Test
+    void emptyFileHasNoRecords() throws IOException {
+        assertEquals(new ArrayList<List<String>>(), readAll(""));
+    }
+
+    @Test
+    void handlerCanStopEarly() throws IOException {
+        List<String> seen = new ArrayList<>();
+        CsvReader.read(write("1\n2\n3\n"), (line, fields) -> {
+            seen.add(fields.get(0));
+            return seen.size() < 2;
+        });
+
+        assertEquals(Arrays.asList("1", "2"), seen);
+    }
+
+    private List<List<String>> readAll(String content) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        CsvReader.read(write(content), (line, fields) -> rows.add(fields));
+        return rows;
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = Files.createTempFile(dir, "test", ".csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,90 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+    private static final long MAX_MICROS = (1L << 37) - 1;
+
+    @Test
+    void bucketsAreContiguousAndIncreasing() {
+        int last = LatencyHistogram.index(MAX_MICROS);
+        assertEquals(0, LatencyHistogram.index(0));
+        for (int i = 0; i <= last; i++) {
+            long upper = LatencyHistogram.upperBoundMicros(i);
+            long lower = i == 0 ? 0 : LatencyHistogram.upperBoundMicros(i - 1);
+            assertTrue(upper > lower, "bucket " + i);
+            // The bucket holds exactly [lower, upper)
+            assertEquals(i, LatencyHistogram.index(lower), "bucket " + i);
+            assertEquals(i, LatencyHistogram.index(upper - 1), "bucket " + i);
+        }
+        assertEquals(MAX_MICROS + 1, LatencyHistogram.upperBoundMicros(last));
+    }
+
+    @Test
+    void upperBoundIsWithinAnEighthOfTheValue() {
+        Random random = new Random(42);
+        for (int n = 0; n < 100_000; n++) {
+            long micros = n < 10_000 ? n : (long) Math.exp(random.nextDouble() * Math.log(MAX_MICROS));
+            long upper = LatencyHistogram.upperBoundMicros(LatencyHistogram.index(micros));
+            assertTrue(upper > micros, "value " + micros);
+            assertTrue(upper - micros <= Math.max(1, micros / 8), "value " + micros + " reported as " + upper);
+        }
+    }
+
+    @Test
+    void percentilesReportTheUpperBoundOfTheirBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0.0, histogram.getPercentileSeconds(50));
+
+        for (int millis = 1; millis <= 100; millis++) {
+            histogram.record(millis * 1_000_000L);
+        }
+
+        assertWithinAnEighth(0.050, histogram.getPercentileSeconds(50));
+        assertWithinAnEighth(0.090, histogram.getPercentileSeconds(90));
+        assertWithinAnEighth(0.099, histogram.getPercentileSeconds(99));
+        assertWithinAnEighth(0.100, histogram.getPercentileSeconds(100));
+        assertWithinAnEighth(0.001, histogram.getPercentileSeconds(0));
+    }
+
+    @Test
+    void rotationKeepsOneWindowOfHistoryButCountsAreCumulative() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(2_000_000_000L);
+
+        histogram.rotate();
+        histogram.record(1_000_000L);
+        assertWithinAnEighth(2.0, histogram.getPercentileSeconds(100));
+
+        histogram.rotate();
+        assertWithinAnEighth(0.001, histogram.getPercentileSeconds(100));
+
+        histogram.rotate();
+        assertEquals(0.0, histogram.getPercentileSeconds(100));
+        assertEquals(2, histogram.getCount());
+        assertEquals(2.001, histogram.getSumSeconds(), 1e-9);
+    }
+
+    @Test
+    void countAndSumUseWholeMicrosecondsAndClampOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_500);
+        histogram.record(999);
+        histogram.record(-5_000);
+        assertEquals(3, histogram.getCount());
+        assertEquals(0.000_001, histogram.getSumSeconds(), 1e-12);
+
+        histogram.record(Long.MAX_VALUE);
+        assertEquals((MAX_MICROS + 1) / 1_000_000.0, histogram.getPercentileSeconds(100));
+    }
+
+    private static void assertWithinAnEighth(double expectedSeconds, double reportedSeconds) {
+        assertTrue(reportedSeconds > expectedSeconds && reportedSeconds <= expectedSeconds * 1.125,
+                "expected about " + expectedSeconds + " but was " + reportedSeconds);
+    }
+}